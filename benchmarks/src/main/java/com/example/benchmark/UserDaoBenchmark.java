@@ -0,0 +1,157 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.dao.NameKey;
+import com.example.dao.UserCursor;
+import com.example.dao.UserDAO;
+import com.example.model.User;
+
+/**
+ * The Class UserDaoBenchmark. Single-threaded benchmarks of the {@link UserDAO} query paths, see
+ * {@link UserDaoConcurrentBenchmark} for the multi-threaded runs. Run with '-prof gc' for allocation rates;
+ * the reuseQueries parameter compares creating the named queries per call with {@link UserDAO#setReuseQueries}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class UserDaoBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The Class DaoState. One entity manager and DAO per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class DaoState {
+
+        @Param({"false", "true"})
+        private boolean reuseQueries;
+
+        private EntityManager entityManager;
+
+        private UserDAO dao;
+
+        private Random random;
+
+        private int userCount;
+
+        /**
+         * Creates the entity manager and the DAO.
+         * 
+         * @param database the database
+         */
+        @Setup(Level.Trial)
+        public void setUp(final UserDatabase database) {
+            entityManager = database.getEntityManagerFactory().createEntityManager();
+            dao = new UserDAO();
+            dao.setEntityManager(entityManager);
+            dao.setReadOnly(true);
+            dao.setClearInterval(10000);
+            dao.setReuseQueries(reuseQueries);
+            random = new Random();
+            userCount = database.getUserCount();
+        }
+
+        /**
+         * Closes the entity manager.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            entityManager.close();
+        }
+
+        NameKey randomKey() {
+            int i = random.nextInt(userCount);
+            return new NameKey("name" + i, "first" + i);
+        }
+    }
+
+    /**
+     * The Class AgeState. The share of the users matched by the by-age benchmarks, in a state of its own so it
+     * doesn't multiply the runs of the by-name benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class AgeState {
+
+        @Param({"1", "10", "50"})
+        private int selectivityPercent;
+
+        int minimalAge() {
+            return 100 - selectivityPercent;
+        }
+    }
+
+    @Benchmark
+    public User findByName(final DaoState state) {
+        NameKey key = state.randomKey();
+        return state.dao.findByName(key.getName(), key.getFirstName());
+    }
+
+    @Benchmark
+    public boolean existsByName(final DaoState state) {
+        NameKey key = state.randomKey();
+        return state.dao.existsByName(key.getName(), key.getFirstName());
+    }
+
+    @Benchmark
+    public Object findByNames(final DaoState state) {
+        List<NameKey> keys = new ArrayList<NameKey>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            keys.add(state.randomKey());
+        }
+        return state.dao.findByNames(keys);
+    }
+
+    @Benchmark
+    public List<User> findByMinimalAge(final DaoState state, final AgeState age) {
+        return state.dao.findByMinimalAge(age.minimalAge());
+    }
+
+    @Benchmark
+    public void iterateByMinimalAge(final DaoState state, final AgeState age, final Blackhole blackhole) {
+        UserCursor cursor = state.dao.iterateByMinimalAge(age.minimalAge());
+        try {
+            while (cursor.hasNext()) {
+                blackhole.consume(cursor.next());
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Benchmark
+    public List<String> findUsernamesByMinimalAge(final DaoState state, final AgeState age) {
+        return state.dao.findUsernamesByMinimalAge(age.minimalAge());
+    }
+
+    @Benchmark
+    public long countByMinimalAge(final DaoState state, final AgeState age) {
+        return state.dao.countByMinimalAge(age.minimalAge());
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.example.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The Class UserDaoConcurrentBenchmark. The {@link UserDaoBenchmark}s with one thread per core, each
+ * thread with its own entity manager on the shared database.
+ */
+@Threads(Threads.MAX)
+public class UserDaoConcurrentBenchmark extends UserDaoBenchmark {
+
+}
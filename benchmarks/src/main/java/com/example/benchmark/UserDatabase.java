@@ -0,0 +1,117 @@
+package com.example.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The Class UserDatabase. Boots the 'userDb' persistence unit against an in-memory HSQLDB database and
+ * seeds it with userCount users. User i is named ("name" + i, "first" + i) and has an age of 0 - 99, so a
+ * minimal age of 100 - p selects p percent of the users.
+ */
+@State(Scope.Benchmark)
+public class UserDatabase {
+
+    private static final String INSERT = "insert into user (username, lastName, firstname, age) values (?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"10000", "1000000"})
+    private int userCount;
+
+    private String url;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Boot the persistence unit and seed the users.
+     * 
+     * @throws SQLException on a seeding error
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        url = "jdbc:hsqldb:mem:users" + userCount;
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("hibernate.connection.url", url);
+        entityManagerFactory = Persistence.createEntityManagerFactory("userDb", properties);
+        seed();
+    }
+
+    /**
+     * Close the persistence unit and drop the database.
+     * 
+     * @throws SQLException on a shutdown error
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        entityManagerFactory.close();
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            connection.createStatement().execute("SHUTDOWN");
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Gets the entity manager factory.
+     * 
+     * @return the entity manager factory
+     */
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * Gets the user count.
+     * 
+     * @return the user count
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Seed the users with JDBC batches.
+     * 
+     * @throws SQLException on an insert error
+     */
+    private void seed() throws SQLException {
+        Random random = new Random(42);
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            connection.setAutoCommit(false);
+            PreparedStatement insert = connection.prepareStatement(INSERT);
+            for (int i = 0; i < userCount; i++) {
+                insert.setString(1, "user" + i);
+                insert.setString(2, "name" + i);
+                insert.setString(3, "first" + i);
+                insert.setInt(4, random.nextInt(100));
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            insert.close();
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+}
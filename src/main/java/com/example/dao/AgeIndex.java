@@ -0,0 +1,191 @@
+package com.example.dao;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The Class AgeIndex. An in-memory index of the users by age for {@link UserDAO#findByMinimalAge(int)}.
+ * The ages are kept sorted in a primitive int[] with the usernames at the same positions, so a threshold
+ * query is a binary search followed by copying the tail of the usernames. Updates and removals are buffered
+ * and merged into the sorted arrays in bulk on the next query (or when the buffer is full).
+ */
+public class AgeIndex {
+
+    private static final int MIN_PENDING_CAPACITY = 1024;
+
+    private int[] ages = new int[0];
+
+    private String[] usernames = new String[0];
+
+    private int size;
+
+    private int[] pendingAges = new int[MIN_PENDING_CAPACITY];
+
+    private String[] pendingUsernames = new String[MIN_PENDING_CAPACITY];
+
+    private boolean[] pendingRemovals = new boolean[MIN_PENDING_CAPACITY];
+
+    private int pendingSize;
+
+    /**
+     * Replaces the content of the index.
+     * 
+     * @param newUsernames the usernames
+     * @param newAges the ages, at the same positions as the usernames
+     * @param count the number of users in the arrays
+     */
+    public synchronized void load(final String[] newUsernames, final int[] newAges, final int count) {
+        long[] keys = sortKeys(newAges, count);
+        int[] sortedAges = new int[count];
+        String[] sortedUsernames = new String[count];
+        for (int i = 0; i < count; i++) {
+            int position = (int) keys[i];
+            sortedAges[i] = newAges[position];
+            sortedUsernames[i] = newUsernames[position];
+        }
+        ages = sortedAges;
+        usernames = sortedUsernames;
+        size = count;
+        pendingSize = 0;
+    }
+
+    /**
+     * Adds a user or changes the age of a user.
+     * 
+     * @param username the username
+     * @param age the age
+     */
+    public synchronized void put(final String username, final int age) {
+        addPending(username, age, false);
+    }
+
+    /**
+     * Removes a user, e.g. the old username of a renamed user.
+     * 
+     * @param username the username
+     */
+    public synchronized void remove(final String username) {
+        addPending(username, 0, true);
+    }
+
+    private void addPending(final String username, final int age, final boolean removal) {
+        if (pendingSize == pendingUsernames.length) {
+            if (pendingSize >= Math.max(MIN_PENDING_CAPACITY, size / 8)) {
+                merge();
+            } else {
+                pendingUsernames = Arrays.copyOf(pendingUsernames, pendingSize * 2);
+                pendingAges = Arrays.copyOf(pendingAges, pendingSize * 2);
+                pendingRemovals = Arrays.copyOf(pendingRemovals, pendingSize * 2);
+            }
+        }
+        pendingUsernames[pendingSize] = username;
+        pendingAges[pendingSize] = age;
+        pendingRemovals[pendingSize] = removal;
+        pendingSize++;
+    }
+
+    /**
+     * Gets the usernames of the users with at least the given age.
+     * 
+     * @param minimumAge the minimum age
+     * 
+     * @return the usernames, sorted by age
+     */
+    public synchronized String[] findUsernames(final int minimumAge) {
+        merge();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] < minimumAge) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Arrays.copyOfRange(usernames, low, size);
+    }
+
+    /**
+     * Gets the number of users in the index.
+     * 
+     * @return the size
+     */
+    public synchronized int size() {
+        merge();
+        return size;
+    }
+
+    /**
+     * Merge the buffered updates into the sorted arrays.
+     */
+    private void merge() {
+        if (pendingSize == 0) {
+            return;
+        }
+        // the last update of a username wins, older entries of updated usernames are dropped, so are removed ones
+        Set<String> updated = new HashSet<String>(pendingSize * 2);
+        boolean[] keep = new boolean[pendingSize];
+        int kept = 0;
+        for (int i = pendingSize - 1; i >= 0; i--) {
+            if (updated.add(pendingUsernames[i]) && !pendingRemovals[i]) {
+                keep[i] = true;
+                kept++;
+            }
+        }
+        int[] newAges = new int[kept];
+        String[] newUsernames = new String[kept];
+        for (int i = 0, j = 0; i < pendingSize; i++) {
+            if (keep[i]) {
+                newAges[j] = pendingAges[i];
+                newUsernames[j++] = pendingUsernames[i];
+            }
+        }
+        long[] keys = sortKeys(newAges, kept);
+
+        int[] mergedAges = new int[size + kept];
+        String[] mergedUsernames = new String[size + kept];
+        int count = 0;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (updated.contains(usernames[i])) {
+                continue;
+            }
+            while (n < kept && newAges[(int) keys[n]] < ages[i]) {
+                mergedAges[count] = newAges[(int) keys[n]];
+                mergedUsernames[count++] = newUsernames[(int) keys[n++]];
+            }
+            mergedAges[count] = ages[i];
+            mergedUsernames[count++] = usernames[i];
+        }
+        while (n < kept) {
+            mergedAges[count] = newAges[(int) keys[n]];
+            mergedUsernames[count++] = newUsernames[(int) keys[n++]];
+        }
+        ages = mergedAges;
+        usernames = mergedUsernames;
+        size = count;
+        Arrays.fill(pendingUsernames, 0, pendingSize, null);
+        pendingSize = 0;
+    }
+
+    /**
+     * Sort positions by age without boxing: every key holds the age in the high and the position in the
+     * low 32 bits.
+     * 
+     * @param values the ages
+     * @param count the number of ages
+     * 
+     * @return the sorted keys, (int) key is the position
+     */
+    private static long[] sortKeys(final int[] values, final int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) values[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+}
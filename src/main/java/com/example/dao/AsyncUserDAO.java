@@ -0,0 +1,152 @@
+package com.example.dao;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import com.example.model.User;
+
+/**
+ * The Class AsyncUserDAO. Asynchronous facade over {@link UserDAO}. Every call runs as a task on the
+ * given executor with its own {@link EntityManager}, at most maxConcurrency calls hit the database at
+ * the same time so the connection pool can't be exhausted. The returned users are detached. The results are
+ * {@link CompletableFuture}s, so callers can compose them without blocking a thread per call.
+ * Any executor can be used, e.g. a virtual-thread-per-task executor on runtimes that provide one.
+ */
+public class AsyncUserDAO {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private volatile UserCache cache;
+
+    /**
+     * Instantiates a new async user DAO.
+     * 
+     * @param entityManagerFactory the factory of the per-task entity managers
+     * @param executor the executor to run the calls on
+     * @param maxConcurrency the maximum number of concurrent database calls
+     */
+    public AsyncUserDAO(final EntityManagerFactory entityManagerFactory, final ExecutorService executor,
+        final int maxConcurrency) {
+        super();
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * Asynchronous {@link UserDAO#findByName(String, String)}.
+     * 
+     * @param name the name
+     * @param firstName the first name
+     * 
+     * @return the future user
+     */
+    public CompletableFuture<User> findByName(final String name, final String firstName) {
+        return submit(new DaoCall<User>() {
+            public User call(final UserDAO dao) {
+                return dao.findByName(name, firstName);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous {@link UserDAO#findByMinimalAge(int)}.
+     * 
+     * @param minimumAge the minimum age
+     * 
+     * @return the future users
+     */
+    public CompletableFuture<List<User>> findByMinimalAge(final int minimumAge) {
+        return submit(new DaoCall<List<User>>() {
+            public List<User> call(final UserDAO dao) {
+                return dao.findByMinimalAge(minimumAge);
+            }
+        });
+    }
+
+    /**
+     * Sets the cache shared by all calls, null disables caching.
+     * 
+     * @param cache the cache
+     */
+    public void setCache(final UserCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Shuts the executor down. Calls already submitted are still completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates the DAO of a call.
+     * 
+     * @param entityManager the entity manager of the call
+     * 
+     * @return the DAO
+     */
+    protected UserDAO createDao(final EntityManager entityManager) {
+        UserDAO dao = new UserDAO();
+        dao.setEntityManager(entityManager);
+        dao.setReadOnly(true);
+        dao.setDetachResults(true);
+        dao.setCache(cache);
+        return dao;
+    }
+
+    /**
+     * Submit a call: wait for a permit, then run it with a fresh entity manager.
+     * 
+     * @param call the call
+     * 
+     * @return the future result
+     */
+    private <T> CompletableFuture<T> submit(final DaoCall<T> call) {
+        return CompletableFuture.supplyAsync(new Supplier<T>() {
+            public T get() {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a database permit", e);
+                }
+                try {
+                    EntityManager entityManager = entityManagerFactory.createEntityManager();
+                    try {
+                        return call.call(createDao(entityManager));
+                    } finally {
+                        entityManager.close();
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * A call on a {@link UserDAO}.
+     * 
+     * @param <T> the result type
+     */
+    private interface DaoCall<T> {
+
+        T call(UserDAO dao);
+    }
+
+}
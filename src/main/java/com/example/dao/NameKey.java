@@ -0,0 +1,99 @@
+package com.example.dao;
+
+import java.util.Locale;
+
+/**
+ * The Class NameKey. Immutable (name, firstName) pair identifying a user as used by
+ * {@link UserDAO#findByName(String, String)}.
+ */
+public final class NameKey {
+
+    private final String name;
+
+    private final String firstName;
+
+    /**
+     * Instantiates a new name key.
+     * 
+     * @param name the name
+     * @param firstName the first name
+     */
+    public NameKey(final String name, final String firstName) {
+        super();
+        this.name = name;
+        this.firstName = firstName;
+    }
+
+    /**
+     * Gets the name.
+     * 
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the first name.
+     * 
+     * @return the first name
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Gets the key as a database with a case-insensitive or blank-padding collation compares it: lower case
+     * and without trailing blanks.
+     * 
+     * @return the lenient key
+     */
+    public NameKey toLenient() {
+        return new NameKey(lenient(name), lenient(firstName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NameKey)) {
+            return false;
+        }
+        NameKey other = (NameKey) o;
+        return (name == null ? other.name == null : name.equals(other.name))
+            && (firstName == null ? other.firstName == null : firstName.equals(other.firstName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = name == null ? 0 : name.hashCode();
+        return 31 * result + (firstName == null ? 0 : firstName.hashCode());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "(" + name + ", " + firstName + ")";
+    }
+
+    private static String lenient(final String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end).toLowerCase(Locale.ENGLISH);
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.example.dao;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+
+/**
+ * The Class NamedQueryHandle. Describes a named query together with its parameters in declaration order.
+ * The handle is validated once against the persistence unit and afterwards binds the values through typed
+ * methods, one per parameter signature, so neither the caller nor the handle needs varargs arrays or
+ * per-value type checks. The parameters are still set by name: the named queries declare named parameters.
+ */
+final class NamedQueryHandle {
+
+    private final String queryName;
+
+    private final String[] parameterNames;
+
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * Instantiates a new handle without parameters.
+     * 
+     * @param queryName the name of the named query
+     */
+    NamedQueryHandle(final String queryName) {
+        this(queryName, new String[0], new Class<?>[0]);
+    }
+
+    /**
+     * Instantiates a new handle.
+     * 
+     * @param queryName the name of the named query
+     * @param parameterNames the parameter names
+     * @param parameterTypes the parameter types
+     */
+    private NamedQueryHandle(final String queryName, final String[] parameterNames,
+        final Class<?>[] parameterTypes) {
+        super();
+        this.queryName = queryName;
+        this.parameterNames = parameterNames;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * Adds the next named parameter; the bind methods take the values in declaration order.
+     * 
+     * @param name the name of the parameter in the query
+     * @param type the type of the values
+     * 
+     * @return a new handle with the extra parameter
+     */
+    NamedQueryHandle param(final String name, final Class<?> type) {
+        String[] names = Arrays.copyOf(parameterNames, parameterNames.length + 1);
+        Class<?>[] types = Arrays.copyOf(parameterTypes, parameterTypes.length + 1);
+        names[parameterNames.length] = name;
+        types[parameterTypes.length] = type;
+        return new NamedQueryHandle(queryName, names, types);
+    }
+
+    /**
+     * Gets the query name.
+     * 
+     * @return the query name
+     */
+    String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Creates the query and checks that it declares the parameters of this handle with compatible types.
+     * 
+     * @param entityManager the entity manager
+     * 
+     * @return the created query
+     * 
+     * @throws IllegalStateException if the query doesn't exist or doesn't match the handle
+     */
+    Query create(final EntityManager entityManager) {
+        Query query;
+        try {
+            query = entityManager.createNamedQuery(queryName);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown named query: " + queryName, e);
+        }
+        for (int i = 0; i < parameterNames.length; i++) {
+            Parameter<?> parameter;
+            try {
+                parameter = query.getParameter(parameterNames[i]);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Named query " + queryName + " has no parameter "
+                    + parameterNames[i], e);
+            }
+            Class<?> declared = parameter.getParameterType();
+            if (declared != null && !wrap(declared).isAssignableFrom(parameterTypes[i])) {
+                throw new IllegalStateException("Parameter " + parameterNames[i] + " of named query " + queryName
+                    + " is of type " + declared.getName() + ", not " + parameterTypes[i].getName());
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Binds the values of a handle with two String parameters.
+     * 
+     * @param query the query created by this handle
+     * @param first the value of the first parameter
+     * @param second the value of the second parameter
+     * 
+     * @return the query
+     */
+    Query bind(final Query query, final String first, final String second) {
+        expect(String.class, String.class);
+        query.setParameter(parameterNames[0], first);
+        query.setParameter(parameterNames[1], second);
+        return query;
+    }
+
+    /**
+     * Binds the value of a handle with one Integer parameter. Small values, like ages, are boxed to the
+     * cached Integer instances, so binding doesn't allocate.
+     * 
+     * @param query the query created by this handle
+     * @param value the value of the parameter
+     * 
+     * @return the query
+     */
+    Query bind(final Query query, final int value) {
+        expect(Integer.class, null);
+        query.setParameter(parameterNames[0], Integer.valueOf(value));
+        return query;
+    }
+
+    /**
+     * Checks that the bind method called matches the declared parameters.
+     * 
+     * @param first the type of the first parameter
+     * @param second the type of the second parameter || null if the handle has one parameter
+     */
+    private void expect(final Class<?> first, final Class<?> second) {
+        int count = second == null ? 1 : 2;
+        if (parameterTypes.length != count || parameterTypes[0] != first
+            || (second != null && parameterTypes[1] != second)) {
+            throw new IllegalArgumentException("Named query " + queryName + " expects parameters "
+                + Arrays.toString(parameterTypes));
+        }
+    }
+
+    /**
+     * Wrap a primitive type.
+     * 
+     * @param type the type
+     * 
+     * @return the wrapper type || the type itself if not primitive
+     */
+    private static Class<?> wrap(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == Integer.TYPE) {
+            return Integer.class;
+        } else if (type == Long.TYPE) {
+            return Long.class;
+        } else if (type == Boolean.TYPE) {
+            return Boolean.class;
+        } else if (type == Double.TYPE) {
+            return Double.class;
+        } else if (type == Float.TYPE) {
+            return Float.class;
+        } else if (type == Short.TYPE) {
+            return Short.class;
+        } else if (type == Byte.TYPE) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+}
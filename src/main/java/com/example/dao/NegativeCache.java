@@ -0,0 +1,120 @@
+package com.example.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class NegativeCache. Remembers the (name, firstName) keys for which no user exists, so repeated
+ * misses of {@link UserDAO#findOptionalByName(String, String)} don't reach the database. The time-to-live
+ * should be short; creating a user must invalidate its key.
+ */
+public class NegativeCache {
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Map<NameKey, Long> misses;
+
+    private long hitCount;
+
+    /**
+     * Instantiates a new negative cache.
+     * 
+     * @param maxSize the maximum number of remembered misses
+     * @param ttl the time-to-live of a miss
+     * @param unit the unit of the time-to-live
+     */
+    public NegativeCache(final int maxSize, final long ttl, final TimeUnit unit) {
+        super();
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.misses = new LinkedHashMap<NameKey, Long>() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<NameKey, Long> eldest) {
+                return size() > NegativeCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Checks whether a key is a known miss.
+     * 
+     * @param key the key
+     * 
+     * @return true, if no user existed for the key within the time-to-live
+     */
+    public synchronized boolean isMiss(final NameKey key) {
+        Long created = misses.get(key);
+        if (created == null) {
+            return false;
+        }
+        if (now() - created.longValue() >= ttlNanos) {
+            misses.remove(key);
+            return false;
+        }
+        hitCount++;
+        return true;
+    }
+
+    /**
+     * Remembers a miss.
+     * 
+     * @param key the key
+     */
+    public synchronized void putMiss(final NameKey key) {
+        misses.remove(key);
+        misses.put(key, Long.valueOf(now()));
+    }
+
+    /**
+     * Forgets the miss of a key. Write paths call this after creating a user.
+     * 
+     * @param key the key
+     */
+    public synchronized void invalidate(final NameKey key) {
+        misses.remove(key);
+    }
+
+    /**
+     * Forgets all misses.
+     */
+    public synchronized void invalidateAll() {
+        misses.clear();
+    }
+
+    /**
+     * Gets the number of remembered misses.
+     * 
+     * @return the size
+     */
+    public synchronized int size() {
+        return misses.size();
+    }
+
+    /**
+     * Gets the number of lookups answered by the cache.
+     * 
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * The current time in nanoseconds.
+     * 
+     * @return the time
+     */
+    long now() {
+        return System.nanoTime();
+    }
+
+}
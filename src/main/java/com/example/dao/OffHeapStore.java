@@ -0,0 +1,450 @@
+package com.example.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The Class OffHeapStore. Read-mostly store of fixed-size records keyed by (name, firstName), kept outside
+ * the Java heap in a direct or memory-mapped buffer so large user populations don't add to GC work.
+ * <p>
+ * Layout: a header, an open-addressing index of (hash, record number) slots with linear probing, and the
+ * records. Each record holds the two key strings as UTF-16 chars (at most {@code maxKeyChars} each) and a
+ * payload of {@link Codec#getSize()} bytes. Probing reads the buffer with absolute gets and compares the
+ * key chars in place, so a lookup allocates nothing until the payload is decoded.
+ * <p>
+ * A store opened on a file with {@link #open(File, int, int, Codec)} keeps its content across restarts as
+ * long as the capacity, key and payload sizes are unchanged.
+ *
+ * @param <T> the type of the stored values
+ */
+public class OffHeapStore<T> {
+
+    /**
+     * The Interface Codec. Writes values into and reads them from a fixed number of bytes.
+     *
+     * @param <T> the type of the values
+     */
+    public interface Codec<T> {
+
+        /**
+         * Gets the encoded size.
+         *
+         * @return the number of bytes of every encoded value
+         */
+        int getSize();
+
+        /**
+         * Encodes a value.
+         *
+         * @param value the value
+         * @param buffer the buffer
+         * @param offset the offset of the first byte, the codec must not write past offset + size
+         */
+        void encode(T value, ByteBuffer buffer, int offset);
+
+        /**
+         * Decodes a value.
+         *
+         * @param buffer the buffer
+         * @param offset the offset of the first byte
+         *
+         * @return the value
+         */
+        T decode(ByteBuffer buffer, int offset);
+    }
+
+    private static final int MAGIC = 0x55535452;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int COUNT_OFFSET = 20;
+
+    private static final int SLOT_SIZE = 8;
+
+    private static final int NULL_LENGTH = -1;
+
+    private final ByteBuffer buffer;
+
+    private final Codec<T> codec;
+
+    private final int maxRecords;
+
+    private final int maxKeyChars;
+
+    private final int mask;
+
+    private final int recordsOffset;
+
+    private final int recordSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int count;
+
+    /**
+     * Instantiates a new off-heap store in a direct buffer.
+     *
+     * @param maxRecords the maximum number of records
+     * @param maxKeyChars the maximum length of the name and of the first name
+     * @param codec the codec of the values
+     */
+    public OffHeapStore(final int maxRecords, final int maxKeyChars, final Codec<T> codec) {
+        this(null, maxRecords, maxKeyChars, codec);
+    }
+
+    private OffHeapStore(final ByteBuffer mapped, final int maxRecords, final int maxKeyChars, final Codec<T> codec) {
+        super();
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("maxRecords must be positive: " + maxRecords);
+        }
+        if (maxKeyChars <= 0 || maxKeyChars > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("maxKeyChars out of range: " + maxKeyChars);
+        }
+        this.codec = codec;
+        this.maxRecords = maxRecords;
+        this.maxKeyChars = maxKeyChars;
+        int slots = Integer.highestOneBit(maxRecords) << 2;
+        this.mask = slots - 1;
+        this.recordsOffset = HEADER_SIZE + slots * SLOT_SIZE;
+        this.recordSize = 4 + 4 * maxKeyChars + codec.getSize();
+        long size = sizeOf(maxRecords, maxKeyChars, codec);
+        this.buffer = mapped != null ? mapped : ByteBuffer.allocateDirect((int) size);
+        if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && buffer.getInt(8) == maxRecords
+            && buffer.getInt(12) == maxKeyChars && buffer.getInt(16) == codec.getSize()) {
+            count = buffer.getInt(COUNT_OFFSET);
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Opens a store backed by a memory-mapped file. The file is created or resized as needed; its records
+     * are kept when it was written by a store of the same capacity, key and payload sizes.
+     *
+     * @param <T> the type of the stored values
+     * @param file the file
+     * @param maxRecords the maximum number of records
+     * @param maxKeyChars the maximum length of the name and of the first name
+     * @param codec the codec of the values
+     *
+     * @return the store
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static <T> OffHeapStore<T> open(final File file, final int maxRecords, final int maxKeyChars,
+        final Codec<T> codec) throws IOException {
+        long size = sizeOf(maxRecords, maxKeyChars, codec);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new OffHeapStore<T>(mapped, maxRecords, maxKeyChars, codec);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static long sizeOf(final int maxRecords, final int maxKeyChars, final Codec<?> codec) {
+        long slots = Integer.highestOneBit(Math.max(1, maxRecords)) << 2;
+        long size = HEADER_SIZE + slots * SLOT_SIZE + (long) maxRecords * (4 + 4L * maxKeyChars + codec.getSize());
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Store larger than 2 GB: " + size + " bytes");
+        }
+        return size;
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return the decoded value || null if the key isn't stored
+     */
+    public T get(final String name, final String firstName) {
+        lock.readLock().lock();
+        try {
+            int slot = find(name, firstName, hash(name, firstName));
+            if (slot < 0) {
+                return null;
+            }
+            int record = buffer.getInt(slotOffset(slot) + 4) - 1;
+            return codec.decode(buffer, recordOffset(record) + 4 + 4 * maxKeyChars);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a key is stored.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return true, if stored
+     */
+    public boolean contains(final String name, final String firstName) {
+        lock.readLock().lock();
+        try {
+            return find(name, firstName, hash(name, firstName)) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a value, replacing the previous value of the key.
+     *
+     * @param name the name
+     * @param firstName the first name
+     * @param value the value
+     *
+     * @return true, if stored; false if the store is full or a key part is longer than maxKeyChars
+     */
+    public boolean put(final String name, final String firstName, final T value) {
+        if (length(name) > maxKeyChars || length(firstName) > maxKeyChars) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int hash = hash(name, firstName);
+            int slot = find(name, firstName, hash);
+            int record;
+            if (slot >= 0) {
+                record = buffer.getInt(slotOffset(slot) + 4) - 1;
+            } else {
+                if (count == maxRecords) {
+                    return false;
+                }
+                record = count;
+                slot = hash & mask;
+                while (buffer.getInt(slotOffset(slot) + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                int offset = recordOffset(record);
+                writeKey(offset, name);
+                writeKey(offset + 2 + 2 * maxKeyChars, firstName);
+                buffer.putInt(slotOffset(slot), hash);
+                buffer.putInt(slotOffset(slot) + 4, record + 1);
+                setCount(count + 1);
+            }
+            codec.encode(value, buffer, recordOffset(record) + 4 + 4 * maxKeyChars);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a key. The last record is moved into the freed record so the records stay contiguous.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return true, if the key was stored
+     */
+    public boolean remove(final String name, final String firstName) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(name, firstName, hash(name, firstName));
+            if (slot < 0) {
+                return false;
+            }
+            int record = buffer.getInt(slotOffset(slot) + 4) - 1;
+            deleteSlot(slot);
+            int last = count - 1;
+            if (record != last) {
+                int lastSlot = slotOf(last);
+                buffer.putInt(slotOffset(lastSlot) + 4, record + 1);
+                int from = recordOffset(last);
+                int to = recordOffset(record);
+                for (int i = 0; i < recordSize; i++) {
+                    buffer.put(to + i, buffer.get(from + i));
+                }
+            }
+            setCount(last);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all records.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < recordsOffset; i += 4) {
+                buffer.putInt(i, 0);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, maxRecords);
+            buffer.putInt(12, maxKeyChars);
+            buffer.putInt(16, codec.getSize());
+            setCount(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the changes of a file-backed store to the file. Does nothing for a direct buffer.
+     */
+    public void flush() {
+        if (buffer instanceof MappedByteBuffer) {
+            lock.readLock().lock();
+            try {
+                ((MappedByteBuffer) buffer).force();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return the size
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the maximum number of records.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return maxRecords;
+    }
+
+    private int find(final String name, final String firstName, final int hash) {
+        if (length(name) > maxKeyChars || length(firstName) > maxKeyChars) {
+            return -1;
+        }
+        int slot = hash & mask;
+        while (true) {
+            int offset = slotOffset(slot);
+            int record = buffer.getInt(offset + 4) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (buffer.getInt(offset) == hash) {
+                int recordOffset = recordOffset(record);
+                if (keyEquals(recordOffset, name) && keyEquals(recordOffset + 2 + 2 * maxKeyChars, firstName)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slotOf(final int record) {
+        int offset = recordOffset(record);
+        int slot = hash(readKeyHash(offset), readKeyHash(offset + 2 + 2 * maxKeyChars)) & mask;
+        while (buffer.getInt(slotOffset(slot) + 4) != record + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward-shift deletion: moves the following entries of the probe run up so no tombstones are needed.
+     */
+    private void deleteSlot(final int deleted) {
+        int hole = deleted;
+        int slot = (hole + 1) & mask;
+        while (buffer.getInt(slotOffset(slot) + 4) != 0) {
+            int home = buffer.getInt(slotOffset(slot)) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                buffer.putInt(slotOffset(hole), buffer.getInt(slotOffset(slot)));
+                buffer.putInt(slotOffset(hole) + 4, buffer.getInt(slotOffset(slot) + 4));
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        buffer.putInt(slotOffset(hole), 0);
+        buffer.putInt(slotOffset(hole) + 4, 0);
+    }
+
+    private boolean keyEquals(final int offset, final String key) {
+        int length = buffer.getShort(offset);
+        if (key == null) {
+            return length == NULL_LENGTH;
+        }
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getChar(offset + 2 + 2 * i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeKey(final int offset, final String key) {
+        if (key == null) {
+            buffer.putShort(offset, (short) NULL_LENGTH);
+            return;
+        }
+        buffer.putShort(offset, (short) key.length());
+        for (int i = 0; i < key.length(); i++) {
+            buffer.putChar(offset + 2 + 2 * i, key.charAt(i));
+        }
+    }
+
+    /**
+     * Computes {@link String#hashCode()} of a stored key without materializing it, 0 for null.
+     */
+    private int readKeyHash(final int offset) {
+        int length = buffer.getShort(offset);
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buffer.getChar(offset + 2 + 2 * i);
+        }
+        return h;
+    }
+
+    private void setCount(final int count) {
+        this.count = count;
+        buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    private int slotOffset(final int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private int recordOffset(final int record) {
+        return recordsOffset + record * recordSize;
+    }
+
+    private static int length(final String key) {
+        return key == null ? 0 : key.length();
+    }
+
+    private static int hash(final String name, final String firstName) {
+        return hash(name == null ? 0 : name.hashCode(), firstName == null ? 0 : firstName.hashCode());
+    }
+
+    private static int hash(final int nameHash, final int firstNameHash) {
+        int h = (31 * nameHash + firstNameHash) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class Page. One page of a keyset-paginated query together with the continuation token that
+ * fetches the next page. The token is opaque and only meant to be passed back to the DAO.
+ * 
+ * @param <T> the type of the elements
+ */
+public class Page<T> {
+
+    private final List<T> content;
+
+    private final String nextKey;
+
+    /**
+     * Instantiates a new page.
+     * 
+     * @param content the content
+     * @param nextKey the continuation token || null if this is the last page
+     */
+    public Page(final List<T> content, final String nextKey) {
+        super();
+        this.content = Collections.unmodifiableList(content);
+        this.nextKey = nextKey;
+    }
+
+    /**
+     * Gets the content.
+     * 
+     * @return the content
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the continuation token.
+     * 
+     * @return the token for the next page || null if this is the last page
+     */
+    public String getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * Checks for a next page.
+     * 
+     * @return true, if there is a next page
+     */
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.example.dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The Class ReplicaSelector. Chooses the read replica for the next read. The selector is thread-safe and
+ * meant to be shared by all {@link RoutingUserDAO}s of the same replicas, so the outstanding reads are
+ * counted over all of them.
+ */
+public class ReplicaSelector {
+
+    /**
+     * The selection strategy.
+     */
+    public enum Strategy {
+
+        /** Take the replicas in turn. */
+        ROUND_ROBIN,
+
+        /** Take the replica with the fewest reads in progress. */
+        LEAST_OUTSTANDING
+    }
+
+    private final Strategy strategy;
+
+    private final AtomicIntegerArray outstanding;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Instantiates a new replica selector.
+     * 
+     * @param replicaCount the number of replicas
+     * @param strategy the strategy
+     */
+    public ReplicaSelector(final int replicaCount, final Strategy strategy) {
+        super();
+        if (replicaCount <= 0) {
+            throw new IllegalArgumentException("replicaCount must be positive: " + replicaCount);
+        }
+        this.strategy = strategy;
+        this.outstanding = new AtomicIntegerArray(replicaCount);
+    }
+
+    /**
+     * Gets the number of replicas.
+     * 
+     * @return the replica count
+     */
+    public int getReplicaCount() {
+        return outstanding.length();
+    }
+
+    /**
+     * Selects a replica and counts a read in progress on it. Every acquire must be followed by a
+     * {@link #release(int)}.
+     * 
+     * @return the index of the replica
+     */
+    public int acquire() {
+        int replica;
+        if (strategy == Strategy.ROUND_ROBIN) {
+            replica = (next.getAndIncrement() & Integer.MAX_VALUE) % outstanding.length();
+        } else {
+            int start = (next.getAndIncrement() & Integer.MAX_VALUE) % outstanding.length();
+            replica = start;
+            for (int i = 1; i < outstanding.length(); i++) {
+                int candidate = (start + i) % outstanding.length();
+                if (outstanding.get(candidate) < outstanding.get(replica)) {
+                    replica = candidate;
+                }
+            }
+        }
+        outstanding.incrementAndGet(replica);
+        return replica;
+    }
+
+    /**
+     * Ends a read on a replica.
+     * 
+     * @param replica the index returned by {@link #acquire()}
+     */
+    public void release(final int replica) {
+        outstanding.decrementAndGet(replica);
+    }
+
+    /**
+     * Gets the number of reads in progress on a replica.
+     * 
+     * @param replica the index of the replica
+     * 
+     * @return the outstanding reads
+     */
+    public int getOutstanding(final int replica) {
+        return outstanding.get(replica);
+    }
+
+}
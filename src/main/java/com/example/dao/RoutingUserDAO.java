@@ -0,0 +1,189 @@
+package com.example.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.example.model.User;
+
+/**
+ * The Class RoutingUserDAO. Sends the reads to {@link UserDAO}s on read-replica persistence units and the
+ * writes to the {@link UserDAO} on the primary. After a write, the reads of this instance go to the
+ * primary for the read-your-writes window so they see the written users despite replication lag.
+ * Like the DAOs it wraps, an instance is not thread-safe; share the {@link ReplicaSelector} instead.
+ * 
+ * For local testing the primary and the replicas can be in-process HSQLDB databases, e.g. the same
+ * persistence unit created twice with 'jdbc:hsqldb:mem:primary' and 'jdbc:hsqldb:mem:replica' as
+ * connection url.
+ */
+public class RoutingUserDAO {
+
+    private final UserDAO primary;
+
+    private final List<UserDAO> replicas;
+
+    private final ReplicaSelector selector;
+
+    private long readYourWritesNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private long lastWrite;
+
+    private boolean written;
+
+    private boolean readFromPrimary;
+
+    /**
+     * Instantiates a new routing user DAO.
+     * 
+     * @param primary the DAO on the primary
+     * @param replicas the DAOs on the replicas, in the order of the selector
+     * @param selector the selector
+     */
+    public RoutingUserDAO(final UserDAO primary, final List<UserDAO> replicas, final ReplicaSelector selector) {
+        super();
+        if (replicas.size() != selector.getReplicaCount()) {
+            throw new IllegalArgumentException("Selector is for " + selector.getReplicaCount() + " replicas, got "
+                + replicas.size());
+        }
+        this.primary = primary;
+        this.replicas = new ArrayList<UserDAO>(replicas);
+        this.selector = selector;
+    }
+
+    /**
+     * {@link UserDAO#findByName(String, String)} on a replica.
+     * 
+     * @param name the name
+     * @param firstName the first name
+     * 
+     * @return the user
+     */
+    public User findByName(final String name, final String firstName) {
+        if (readsFromPrimary()) {
+            return primary.findByName(name, firstName);
+        }
+        int replica = selector.acquire();
+        try {
+            return replicas.get(replica).findByName(name, firstName);
+        } finally {
+            selector.release(replica);
+        }
+    }
+
+    /**
+     * {@link UserDAO#findOptionalByName(String, String)} on a replica.
+     * 
+     * @param name the name
+     * @param firstName the first name
+     * 
+     * @return the user || empty if not found
+     */
+    public Optional<User> findOptionalByName(final String name, final String firstName) {
+        if (readsFromPrimary()) {
+            return primary.findOptionalByName(name, firstName);
+        }
+        int replica = selector.acquire();
+        try {
+            return replicas.get(replica).findOptionalByName(name, firstName);
+        } finally {
+            selector.release(replica);
+        }
+    }
+
+    /**
+     * {@link UserDAO#findByMinimalAge(int)} on a replica.
+     * 
+     * @param minimumAge the minimum age
+     * 
+     * @return the users
+     */
+    public List<User> findByMinimalAge(final int minimumAge) {
+        if (readsFromPrimary()) {
+            return primary.findByMinimalAge(minimumAge);
+        }
+        int replica = selector.acquire();
+        try {
+            return replicas.get(replica).findByMinimalAge(minimumAge);
+        } finally {
+            selector.release(replica);
+        }
+    }
+
+    /**
+     * {@link UserDAO#saveAll(Iterable)} on the primary.
+     * 
+     * @param users the users
+     * 
+     * @return the write stats
+     */
+    public WriteStats saveAll(final Iterable<User> users) {
+        try {
+            return primary.saveAll(users);
+        } finally {
+            markWritten();
+        }
+    }
+
+    /**
+     * {@link UserDAO#upsertAll(Iterable)} on the primary.
+     * 
+     * @param users the users
+     * 
+     * @return the write stats
+     */
+    public WriteStats upsertAll(final Iterable<User> users) {
+        try {
+            return primary.upsertAll(users);
+        } finally {
+            markWritten();
+        }
+    }
+
+    /**
+     * Marks that this instance has written to the primary, e.g. through {@link #getPrimary()}, which
+     * starts the read-your-writes window.
+     */
+    public void markWritten() {
+        lastWrite = System.nanoTime();
+        written = true;
+    }
+
+    /**
+     * Gets the DAO on the primary.
+     * 
+     * @return the primary
+     */
+    public UserDAO getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Sets the time the reads go to the primary after a write, 0 disables read-your-writes.
+     * 
+     * @param window the window
+     * @param unit the unit of the window
+     */
+    public void setReadYourWritesWindow(final long window, final TimeUnit unit) {
+        this.readYourWritesNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Forces all reads to the primary (or back to the replicas).
+     * 
+     * @param readFromPrimary true to read from the primary
+     */
+    public void setReadFromPrimary(final boolean readFromPrimary) {
+        this.readFromPrimary = readFromPrimary;
+    }
+
+    /**
+     * Checks whether the next read must go to the primary.
+     * 
+     * @return true, if forced or within the read-your-writes window
+     */
+    private boolean readsFromPrimary() {
+        return readFromPrimary || written && System.nanoTime() - lastWrite < readYourWritesNanos;
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.example.dao;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import com.example.dao.metrics.DaoMetrics;
+import com.example.model.User;
+
+/**
+ * The Class ShardedUserDAO. Spreads the users over N shards, each a persistence unit with its own
+ * {@link EntityManagerFactory}. A user lives on the shard chosen by {@link #shardHash(String, String)} of its
+ * (name, firstName), so {@link #findByName(String, String)} goes to exactly one shard;
+ * {@link #findByMinimalAge(int)} is sent to all shards in parallel and the results are merged in the order the
+ * shards answer. Like {@link AsyncUserDAO}, every call runs on a {@link UserDAO} with its own
+ * {@link EntityManager}, closed when the call ends, so the returned users are detached and no entity manager is
+ * ever shared between threads. The time spent on every shard is recorded in a {@link DaoMetrics} per shard.
+ */
+public class ShardedUserDAO {
+
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final List<EntityManagerFactory> shards;
+
+    private final ExecutorService executor;
+
+    private final List<DaoMetrics> shardMetrics;
+
+    /**
+     * Instantiates a new sharded user DAO.
+     *
+     * @param shards the entity manager factories of the shards, the order defines the partitioning and must
+     *            never change
+     * @param executor the executor for the scatter queries, should have a thread per shard
+     */
+    public ShardedUserDAO(final List<EntityManagerFactory> shards, final ExecutorService executor) {
+        super();
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.shards = new ArrayList<EntityManagerFactory>(shards);
+        this.executor = executor;
+        List<DaoMetrics> metrics = new ArrayList<DaoMetrics>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            metrics.add(new DaoMetrics("shard" + i));
+        }
+        this.shardMetrics = Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * The hash deciding the shard of a user: 32-bit FNV-1a over the UTF-16 code units of the name, a 0 unit and
+     * the first name (null counts as empty), each unit fed high byte first. The hash is part of the storage
+     * layout: changing it moves users to other shards, so it is pinned by known values in the tests and must not
+     * be replaced by {@link NameKey#hashCode()} or any other general-purpose hash.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return the hash
+     */
+    public static int shardHash(final String name, final String firstName) {
+        int hash = FNV_OFFSET_BASIS;
+        hash = fnv(hash, name);
+        hash = fnv(hash, (char) 0);
+        return fnv(hash, firstName);
+    }
+
+    private static int fnv(final int start, final String value) {
+        int hash = start;
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = fnv(hash, value.charAt(i));
+            }
+        }
+        return hash;
+    }
+
+    private static int fnv(final int start, final char unit) {
+        int hash = (start ^ (unit >>> 8)) * FNV_PRIME;
+        return (hash ^ (unit & 0xFF)) * FNV_PRIME;
+    }
+
+    /**
+     * Gets the shard of a user.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return the index of the shard
+     */
+    public int shardOf(final String name, final String firstName) {
+        return (shardHash(name, firstName) & Integer.MAX_VALUE) % shards.size();
+    }
+
+    /**
+     * Gets the entity manager factory of a shard, e.g. to save the users of that shard.
+     *
+     * @param shard the index of the shard
+     *
+     * @return the entity manager factory
+     */
+    public EntityManagerFactory getShard(final int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Gets the timings of a shard.
+     *
+     * @param shard the index of the shard
+     *
+     * @return the metrics
+     */
+    public DaoMetrics getShardMetrics(final int shard) {
+        return shardMetrics.get(shard);
+    }
+
+    /**
+     * {@link UserDAO#findByName(String, String)} on the shard of the user.
+     *
+     * @param name the name
+     * @param firstName the first name
+     *
+     * @return the user
+     */
+    public User findByName(final String name, final String firstName) {
+        int shard = shardOf(name, firstName);
+        long start = System.nanoTime();
+        int rows = -1;
+        EntityManager entityManager = shards.get(shard).createEntityManager();
+        try {
+            User user = createDao(shard, entityManager).findByName(name, firstName);
+            rows = 1;
+            return user;
+        } finally {
+            entityManager.close();
+            shardMetrics.get(shard).record("findByName", System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * {@link UserDAO#findByMinimalAge(int)} on all shards in parallel.
+     *
+     * @param minimumAge the minimum age
+     *
+     * @return the users of all shards
+     */
+    public List<User> findByMinimalAge(final int minimumAge) {
+        List<User> result = new ArrayList<User>();
+        GatherIterator it = iterateByMinimalAge(minimumAge);
+        try {
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        return result;
+    }
+
+    /**
+     * {@link UserDAO#findByMinimalAge(int)} on all shards in parallel. The iterator returns the users of a
+     * shard as soon as that shard has answered, without waiting for the slower shards. When a shard fails,
+     * or the iterator is closed before the end, the queries of the other shards are cancelled.
+     *
+     * @param minimumAge the minimum age
+     *
+     * @return the users of all shards, to be closed when not iterated to the end
+     */
+    public GatherIterator iterateByMinimalAge(final int minimumAge) {
+        CompletionService<List<User>> completion = new ExecutorCompletionService<List<User>>(executor);
+        List<Future<List<User>>> futures = new ArrayList<Future<List<User>>>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            final int shard = i;
+            futures.add(completion.submit(new Callable<List<User>>() {
+                public List<User> call() {
+                    long start = System.nanoTime();
+                    int rows = -1;
+                    EntityManager entityManager = shards.get(shard).createEntityManager();
+                    try {
+                        List<User> users = createDao(shard, entityManager).findByMinimalAge(minimumAge);
+                        rows = users.size();
+                        return users;
+                    } finally {
+                        entityManager.close();
+                        shardMetrics.get(shard).record("findByMinimalAge", System.nanoTime() - start, rows);
+                    }
+                }
+            }));
+        }
+        return new GatherIterator(completion, futures);
+    }
+
+    /**
+     * Creates the DAO of a call on a shard.
+     *
+     * @param shard the index of the shard
+     * @param entityManager the entity manager of the call
+     *
+     * @return the DAO
+     */
+    protected UserDAO createDao(final int shard, final EntityManager entityManager) {
+        UserDAO dao = new UserDAO();
+        dao.setEntityManager(entityManager);
+        return dao;
+    }
+
+    /**
+     * Iterates over the shard results in completion order.
+     */
+    public static final class GatherIterator implements Iterator<User>, Closeable {
+
+        private final CompletionService<List<User>> completion;
+
+        private final List<Future<List<User>>> futures;
+
+        private int pending;
+
+        private Iterator<User> current = Collections.<User>emptyList().iterator();
+
+        GatherIterator(final CompletionService<List<User>> completion, final List<Future<List<User>>> futures) {
+            this.completion = completion;
+            this.futures = futures;
+            this.pending = futures.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean hasNext() {
+            while (!current.hasNext() && pending > 0) {
+                current = take().iterator();
+            }
+            return current.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        /**
+         * Cancels the queries of the shards that haven't answered yet.
+         */
+        public void close() {
+            for (Future<List<User>> future : futures) {
+                future.cancel(true);
+            }
+            pending = 0;
+            current = Collections.<User>emptyList().iterator();
+        }
+
+        private List<User> take() {
+            try {
+                List<User> users = completion.take().get();
+                pending--;
+                return users;
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            } catch (ExecutionException e) {
+                close();
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Shard query failed", e.getCause());
+            }
+        }
+    }
+
+}
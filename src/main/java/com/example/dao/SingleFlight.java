@@ -0,0 +1,79 @@
+package com.example.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class SingleFlight. Coalesces concurrent calls with an equal key: the first caller executes the call,
+ * the callers arriving while it is in flight wait for it and receive the same result (or exception). Nothing
+ * is cached once the call completes.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+
+    private final AtomicLong savedCount = new AtomicLong();
+
+    /**
+     * Executes a call, or joins the call with an equal key that is in flight.
+     *
+     * @param key the key identifying the call, e.g. the query name and its parameters
+     * @param call the call
+     *
+     * @return the result of the call
+     */
+    public V execute(final K key, final Callable<V> call) {
+        FutureTask<V> task = new FutureTask<V>(call);
+        FutureTask<V> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        } else {
+            savedCount.incrementAndGet();
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Coalesced call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Gets the number of calls that joined an in-flight call instead of executing.
+     *
+     * @return the saved count
+     */
+    public long getSavedCount() {
+        return savedCount.get();
+    }
+
+    /**
+     * Gets the number of calls currently in flight.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+}
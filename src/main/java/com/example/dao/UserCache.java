@@ -0,0 +1,178 @@
+package com.example.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.example.model.User;
+
+/**
+ * The Class UserCache. A bounded read-through cache for {@link UserDAO#findByName(String, String)}.
+ * Entries are kept in access order and the least recently used entry is evicted once the size limit
+ * is reached; entries older than the time-to-live are dropped on access.
+ */
+public class UserCache {
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Map<NameKey, Entry> entries;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * Instantiates a new user cache.
+     * 
+     * @param maxSize the maximum number of cached users
+     * @param ttl the time-to-live of an entry
+     * @param unit the unit of the time-to-live
+     */
+    public UserCache(final int maxSize, final long ttl, final TimeUnit unit) {
+        super();
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<NameKey, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<NameKey, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Checks whether a user is cached without counting a hit or a miss, e.g. for an existence check.
+     * 
+     * @param key the key
+     * 
+     * @return true if cached and not expired
+     */
+    public synchronized boolean contains(final NameKey key) {
+        Entry entry = entries.get(key);
+        return entry != null && now() - entry.created < ttlNanos;
+    }
+
+    /**
+     * Gets the cached user.
+     * 
+     * @param key the key
+     * 
+     * @return the user || null if not cached or expired
+     */
+    public synchronized User get(final NameKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (now() - entry.created >= ttlNanos) {
+            entries.remove(key);
+            evictionCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.user;
+    }
+
+    /**
+     * Puts a user in the cache.
+     * 
+     * @param key the key
+     * @param user the user
+     */
+    public synchronized void put(final NameKey key, final User user) {
+        entries.put(key, new Entry(user, now()));
+    }
+
+    /**
+     * Invalidates the entry for the given key. Write paths call this after changing a user.
+     * 
+     * @param key the key
+     */
+    public synchronized void invalidate(final NameKey key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Invalidates all entries.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of cached entries.
+     * 
+     * @return the size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the hit count.
+     * 
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the miss count.
+     * 
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the eviction count (size and expiry evictions, not invalidations).
+     * 
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * The current time in nanoseconds.
+     * 
+     * @return the time
+     */
+    long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * A cached user with its creation time.
+     */
+    private static final class Entry {
+
+        private final User user;
+
+        private final long created;
+
+        Entry(final User user, final long created) {
+            this.user = user;
+            this.created = created;
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.example.dao;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import com.example.model.User;
+
+/**
+ * The Class UserCursor. Iterates over a forward-only cursor of users. Every user that has been handed
+ * out is evicted from the session when the cursor advances, so the persistence context never holds
+ * more than one row regardless of the size of the result.
+ * The cursor must be closed (also when not iterated to the end) to release the JDBC resources.
+ */
+public class UserCursor implements Iterator<User>, Closeable {
+
+    private final Session session;
+
+    private final ScrollableResults results;
+
+    private User current;
+
+    private User next;
+
+    private boolean closed;
+
+    /**
+     * Instantiates a new user cursor.
+     * 
+     * @param session the session the results belong to
+     * @param results the scrollable results
+     */
+    public UserCursor(final Session session, final ScrollableResults results) {
+        super();
+        this.session = session;
+        this.results = results;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            if (results.next()) {
+                next = (User) results.get(0);
+            } else {
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public User next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        evictCurrent();
+        current = next;
+        next = null;
+        return current;
+    }
+
+    /**
+     * Not supported.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Closes the cursor.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            evictCurrent();
+            results.close();
+        }
+    }
+
+    /**
+     * Evict the last user handed out.
+     */
+    private void evictCurrent() {
+        if (current != null) {
+            session.evict(current);
+            current = null;
+        }
+    }
+
+}
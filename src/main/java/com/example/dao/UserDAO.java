@@ -1,27 +1,1066 @@
 package com.example.dao;
 
+import com.example.dao.metrics.DaoMetrics;
+import com.example.dao.metrics.SlowQueryLog;
 import com.example.model.User;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.SessionFactoryImplementor;
 
 import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class UserDAO {
 
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
+    /** Matches the hibernate.jdbc.batch_size of the benchmark persistence unit, see {@link #getJdbcBatchSize()}. */
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 50;
+
+    /** Two parameters per key, stays well below the bind parameter limits of the common databases. */
+    public static final int DEFAULT_BATCH_LOOKUP_SIZE = 500;
+
+    private static final NamedQueryHandle FIND_BY_NAME = new NamedQueryHandle("User.findByName")
+        .param("name", String.class)
+        .param("firstName", String.class);
+
+    private static final NamedQueryHandle FIND_BY_MINIMAL_AGE = new NamedQueryHandle("User.findByMinimalAge")
+        .param("minAge", Integer.class);
+
+    private static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+
+    private static final String HINT_FLUSH_MODE = "org.hibernate.flushMode";
+
+    private static final String EXISTS_BY_NAME = "select u.username from User u"
+        + " where u.name = :name and u.firstName = :firstName";
+
+    private static final String COUNT_BY_MINIMAL_AGE = "select count(u) from User u where u.age >= :minAge";
+
+    private static final String USERNAMES_BY_MINIMAL_AGE = "select u.username from User u where u.age >= :minAge";
+
+    private static final String USERNAME_AGES_BY_MINIMAL_AGE =
+        "select new com.example.dao.UsernameAge(u.username, u.age) from User u where u.age >= :minAge";
+
+    private static final String AGE_INDEX_ENTRIES = "select u.username, u.age from User u";
+
+    private static final String AGE_INDEX_ENTRIES_OF = "select u.username, u.age from User u where u in (:users)";
+
+    private static final String STORE_ENTRIES = "select u.name, u.firstName, u from User u";
+
+    private static final String STORE_ENTRIES_OF = "select u.name, u.firstName, u from User u where u in (:users)";
+
+    private static final String FIND_BY_USERNAMES = "select u from User u where u.username in (:usernames)";
+
+    /** 'id' is the identifier property whatever its mapped name, see the HQL reference. */
+    private static final String FIND_BY_IDS = "select u from User u where u.id in (:ids)";
+
+    private static final String KEYS_BY_IDS = "select u.name, u.firstName, u.username from User u where u.id in (:ids)";
+
+    private static final String AGE_PAGE_FIRST = "select u, u.age, u.username from User u"
+        + " where u.age >= :minAge order by u.age, u.username";
+
+    private static final String AGE_PAGE_AFTER = "select u, u.age, u.username from User u"
+        + " where u.age >= :minAge and (u.age > :lastAge or (u.age = :lastAge and u.username > :lastUsername))"
+        + " order by u.age, u.username";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    private UserCache cache;
+
+    private NegativeCache negativeCache;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    private int batchLookupSize = DEFAULT_BATCH_LOOKUP_SIZE;
+
+    private int writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+
+    private boolean readOnly;
+
+    private boolean detachResults;
+
+    private int clearInterval;
+
+    private int loadedSinceClear;
+
+    private boolean reuseQueries;
+
+    private final Map<NamedQueryHandle, Query> preparedQueries = new IdentityHashMap<NamedQueryHandle, Query>();
+
+    private AgeIndex ageIndex;
+
+    private OffHeapStore<User> offHeapStore;
+
+    private SingleFlight<List<Object>, User> singleFlight;
+
+    private DaoMetrics metrics;
+
+    private SlowQueryLog slowQueryLog;
+
+    /**
+     * Finds a user by name. The NoResultException of a missing user carries no stack trace; callers that
+     * expect misses should use {@link #findOptionalByName(String, String)} instead.
+     */
     public User findByName(String name, String firstName) {
-        Query query = entityManager.createNamedQuery("User.findByName");
-        query.setParameter("name", name);
-        query.setParameter("firstName", firstName);
-        return (User) query.getSingleResult();
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            User user = lookupByName(name, firstName);
+            if (user == null) {
+                throw new MissingUserException("No user " + name + " " + firstName);
+            }
+            rows = 1;
+            return user;
+        } finally {
+            record("findByName", FIND_BY_NAME.getQueryName(), start, rows, "name", name, "firstName", firstName);
+        }
+    }
+
+    /**
+     * Variant of {@link #findByName(String, String)} that returns an empty Optional instead of throwing when
+     * the user doesn't exist. Misses are remembered in the negative cache (if set).
+     */
+    public Optional<User> findOptionalByName(String name, String firstName) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            User user = lookupByName(name, firstName);
+            rows = user == null ? 0 : 1;
+            return Optional.ofNullable(user);
+        } finally {
+            record("findOptionalByName", FIND_BY_NAME.getQueryName(), start, rows, "name", name,
+                "firstName", firstName);
+        }
     }
 
     public List<User> findByMinimalAge(int minimumAge) {
-        Query query = entityManager.createNamedQuery("User.findByMinimalAge");
-        query.setParameter("minAge", minimumAge);
-        return query.getResultList();
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            List<User> result;
+            if (ageIndex == null) {
+                Query query = prepare(namedQuery(FIND_BY_MINIMAL_AGE));
+                FIND_BY_MINIMAL_AGE.bind(query, minimumAge);
+                result = query.getResultList();
+            } else {
+                result = findByUsernames(ageIndex.findUsernames(minimumAge));
+            }
+            release(result);
+            rows = result.size();
+            return result;
+        } finally {
+            record("findByMinimalAge", FIND_BY_MINIMAL_AGE.getQueryName(), start, rows, "minAge", minimumAge);
+        }
+    }
+
+    /**
+     * Checks whether a user with the given name exists without loading it.
+     */
+    public boolean existsByName(String name, String firstName) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            if (cache != null && cache.contains(new NameKey(name, firstName))) {
+                rows = 1;
+                return true;
+            }
+            if (negativeCache != null && negativeCache.isMiss(new NameKey(name, firstName))) {
+                rows = 0;
+                return false;
+            }
+            Query query = prepare(entityManager.createQuery(EXISTS_BY_NAME));
+            query.setParameter("name", name);
+            query.setParameter("firstName", firstName);
+            query.setMaxResults(1);
+            rows = query.getResultList().size();
+            return rows > 0;
+        } finally {
+            record("existsByName", EXISTS_BY_NAME, start, rows, "name", name, "firstName", firstName);
+        }
+    }
+
+    /**
+     * Counts the users of {@link #findByMinimalAge(int)} without loading them.
+     */
+    public long countByMinimalAge(int minimumAge) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Query query = prepare(entityManager.createQuery(COUNT_BY_MINIMAL_AGE));
+            query.setParameter("minAge", minimumAge);
+            long count = ((Number) query.getSingleResult()).longValue();
+            rows = 1;
+            return count;
+        } finally {
+            record("countByMinimalAge", COUNT_BY_MINIMAL_AGE, start, rows, "minAge", minimumAge);
+        }
+    }
+
+    /**
+     * Projection of {@link #findByMinimalAge(int)} to the usernames only; no entities are loaded.
+     */
+    public List<String> findUsernamesByMinimalAge(int minimumAge) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Query query = prepare(entityManager.createQuery(USERNAMES_BY_MINIMAL_AGE));
+            query.setParameter("minAge", minimumAge);
+            List<String> result = query.getResultList();
+            rows = result.size();
+            return result;
+        } finally {
+            record("findUsernamesByMinimalAge", USERNAMES_BY_MINIMAL_AGE, start, rows, "minAge", minimumAge);
+        }
+    }
+
+    /**
+     * Projection of {@link #findByMinimalAge(int)} to (username, age) pairs; no entities are loaded.
+     */
+    public List<UsernameAge> findUsernameAgesByMinimalAge(int minimumAge) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Query query = prepare(entityManager.createQuery(USERNAME_AGES_BY_MINIMAL_AGE));
+            query.setParameter("minAge", minimumAge);
+            List<UsernameAge> result = query.getResultList();
+            rows = result.size();
+            return result;
+        } finally {
+            record("findUsernameAgesByMinimalAge", USERNAME_AGES_BY_MINIMAL_AGE, start, rows, "minAge",
+                minimumAge);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #findByMinimalAge(int)}: rows are read through a forward-only cursor
+     * and detached as the cursor advances. The returned cursor must be closed. The metrics only cover
+     * opening the cursor.
+     */
+    public UserCursor iterateByMinimalAge(int minimumAge) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Session session = (Session) entityManager.getDelegate();
+            org.hibernate.Query query = session.getNamedQuery(FIND_BY_MINIMAL_AGE.getQueryName());
+            query.setInteger("minAge", minimumAge);
+            query.setFetchSize(fetchSize);
+            query.setReadOnly(true);
+            UserCursor cursor = new UserCursor(session, query.scroll(ScrollMode.FORWARD_ONLY));
+            rows = 0;
+            return cursor;
+        } finally {
+            record("iterateByMinimalAge", FIND_BY_MINIMAL_AGE.getQueryName(), start, rows, "minAge", minimumAge);
+        }
+    }
+
+    /**
+     * {@link #iterateByMinimalAge(int)} as a sequential stream. The stream must be closed, e.g. with
+     * try-with-resources, to close the cursor.
+     */
+    public Stream<User> streamByMinimalAge(int minimumAge) {
+        final UserCursor cursor = iterateByMinimalAge(minimumAge);
+        Spliterator<User> users = Spliterators.spliteratorUnknownSize(cursor,
+            Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(users, false).onClose(new Runnable() {
+
+            public void run() {
+                cursor.close();
+            }
+        });
+    }
+
+    /**
+     * Batch variant of {@link #findByName(String, String)}: resolves all keys in one query per
+     * {@link #getBatchLookupSize()} keys. Keys without a user are absent from the result.
+     * <p>
+     * The result is keyed by the requested keys. A returned row whose (name, firstName) differs from every
+     * requested key, as happens with case-insensitive or blank-padding collations and CHAR columns, is
+     * matched to the requested keys that equal it ignoring case and trailing blanks. A row that equals a
+     * requested key exactly only answers that key, so of two keys differing only in case on such a
+     * database just the one stored is found.
+     */
+    public Map<NameKey, User> findByNames(Collection<NameKey> keys) {
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Map<NameKey, User> result = new HashMap<NameKey, User>();
+            List<NameKey> misses = new ArrayList<NameKey>(keys.size());
+            for (NameKey key : keys) {
+                User user = sharesResults() ? cache.get(key) : null;
+                if (user == null) {
+                    misses.add(key);
+                } else {
+                    result.put(key, user);
+                }
+            }
+            if (misses.isEmpty()) {
+                rows = result.size();
+                return result;
+            }
+
+            boolean rowValues = dialect().supportsRowValueConstructorSyntaxInInList();
+            Iterator<NameKey> it = misses.iterator();
+            while (it.hasNext()) {
+                List<NameKey> chunk = new ArrayList<NameKey>(Math.min(misses.size(), batchLookupSize));
+                while (it.hasNext() && chunk.size() < batchLookupSize) {
+                    chunk.add(it.next());
+                }
+                Query query = prepare(entityManager.createQuery(createFindByNamesQuery(chunk.size(), rowValues)));
+                for (int i = 0; i < chunk.size(); i++) {
+                    query.setParameter("name" + i, chunk.get(i).getName());
+                    query.setParameter("firstName" + i, chunk.get(i).getFirstName());
+                }
+                List<Object[]> tuples = query.getResultList();
+                List<User> users = new ArrayList<User>(tuples.size());
+                Set<NameKey> requested = new HashSet<NameKey>(chunk);
+                for (Object[] row : tuples) {
+                    User user = (User) row[0];
+                    users.add(user);
+                    NameKey rowKey = new NameKey((String) row[1], (String) row[2]);
+                    List<NameKey> matched = requested.contains(rowKey) ? Collections.singletonList(rowKey)
+                        : leniently(chunk, rowKey);
+                    for (NameKey key : matched) {
+                        result.put(key, user);
+                        if (sharesResults()) {
+                            cache.put(key, user);
+                        }
+                    }
+                }
+                release(users);
+            }
+            rows = result.size();
+            return result;
+        } finally {
+            record("findByNames", "findByNames", start, rows, "keys", keys.size());
+        }
+    }
+
+    /**
+     * Keyset-paginated variant of {@link #findByMinimalAge(int)} ordered on (age, username). The limit is
+     * rendered by the dialect, so every page costs the same as the first one.
+     *
+     * @param afterKey the continuation token of the previous page, null for the first page
+     */
+    public Page<User> findByMinimalAge(int minimumAge, String afterKey, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        long start = System.nanoTime();
+        int rows = -1;
+        try {
+            Query query;
+            if (afterKey == null) {
+                query = entityManager.createQuery(AGE_PAGE_FIRST);
+            } else {
+                int separator = afterKey.indexOf(':');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid continuation token: " + afterKey);
+                }
+                query = entityManager.createQuery(AGE_PAGE_AFTER);
+                query.setParameter("lastAge", Integer.valueOf(afterKey.substring(0, separator)));
+                query.setParameter("lastUsername", afterKey.substring(separator + 1));
+            }
+            query.setParameter("minAge", minimumAge);
+            prepare(query);
+            query.setMaxResults(pageSize + 1);
+            List<Object[]> tuples = query.getResultList();
+
+            List<User> content = new ArrayList<User>(Math.min(tuples.size(), pageSize));
+            for (int i = 0; i < tuples.size() && i < pageSize; i++) {
+                content.add((User) tuples.get(i)[0]);
+            }
+            String nextKey = null;
+            if (tuples.size() > pageSize) {
+                Object[] last = tuples.get(pageSize - 1);
+                nextKey = last[1] + ":" + last[2];
+            }
+            release(content);
+            rows = content.size();
+            return new Page<User>(content, nextKey);
+        } finally {
+            record("findByMinimalAgePaged", afterKey == null ? AGE_PAGE_FIRST : AGE_PAGE_AFTER, start, rows,
+                "minAge", minimumAge, "afterKey", afterKey);
+        }
+    }
+
+    /**
+     * Persists all users. The entity manager is flushed and cleared every {@link #getWriteBatchSize()} rows,
+     * so the inserts go out as JDBC batches (given hibernate.jdbc.batch_size is set) and memory stays constant.
+     * Clearing detaches every entity of the entity manager, not only the saved users.
+     */
+    public WriteStats saveAll(Iterable<User> users) {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean succeeded = false;
+        try {
+            List<User> written = new ArrayList<User>(writeBatchSize);
+            for (User user : users) {
+                entityManager.persist(user);
+                written.add(user);
+                if (++rows % writeBatchSize == 0) {
+                    endWriteBatch(written);
+                }
+            }
+            endWriteBatch(written);
+            succeeded = true;
+            return new WriteStats(rows, System.nanoTime() - start);
+        } finally {
+            if (negativeCache != null) {
+                negativeCache.invalidateAll();
+            }
+            record("saveAll", start, succeeded ? rows : -1);
+        }
+    }
+
+    /**
+     * Inserts new users and updates existing ones (by identifier), flushed and cleared like
+     * {@link #saveAll(Iterable)}. merge() has to know the current row of a detached user, which costs a SELECT
+     * per user when done by Hibernate; instead, the existing rows of every batch are loaded with one query
+     * before merging. Users whose identifier doesn't exist yet still cost a SELECT each, as Hibernate can't
+     * tell an assigned identifier of a new user from a detached one. Invalidates the whole cache since any
+     * cached user may have changed; the off-heap store (if any) drops the current keys of the existing users
+     * before they are merged, so a renamed user can't be found under its old name.
+     */
+    public WriteStats upsertAll(Iterable<User> users) {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean succeeded = false;
+        try {
+            List<User> pending = new ArrayList<User>(writeBatchSize);
+            List<User> written = new ArrayList<User>(writeBatchSize);
+            for (User user : users) {
+                pending.add(user);
+                if (++rows % writeBatchSize == 0) {
+                    mergeWriteBatch(pending, written);
+                    endWriteBatch(written);
+                }
+            }
+            mergeWriteBatch(pending, written);
+            endWriteBatch(written);
+            succeeded = true;
+            return new WriteStats(rows, System.nanoTime() - start);
+        } finally {
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+            if (negativeCache != null) {
+                negativeCache.invalidateAll();
+            }
+            record("upsertAll", start, succeeded ? rows : -1);
+        }
+    }
+
+    /**
+     * Removes the user with the given name from the caches (if any). Must be called by every path
+     * that creates, changes or removes a user.
+     */
+    public void invalidate(String name, String firstName) {
+        if (offHeapStore != null) {
+            offHeapStore.remove(name, firstName);
+        }
+        if (cache != null) {
+            cache.invalidate(new NameKey(name, firstName));
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidate(new NameKey(name, firstName));
+        }
+    }
+
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        preparedQueries.clear();
+    }
+
+    /**
+     * Resolves the named queries and checks their parameters, meant to be called once at startup so a
+     * mismatch between the DAO and the mapping fails fast. With query reuse enabled the validated queries
+     * are kept for the following calls.
+     *
+     * @throws IllegalStateException if a named query is missing or doesn't match
+     */
+    public void validateQueries() {
+        for (NamedQueryHandle handle : new NamedQueryHandle[] {FIND_BY_NAME, FIND_BY_MINIMAL_AGE}) {
+            Query query = handle.create(entityManager);
+            if (reuseQueries) {
+                preparedQueries.put(handle, query);
+            }
+        }
+    }
+
+    public UserCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Enables the read-through cache for {@link #findByName(String, String)}, null disables it. The cache is
+     * only read and filled in read-only mode with detached results, see {@link #setDetachResults(boolean)}.
+     */
+    public void setCache(UserCache cache) {
+        this.cache = cache;
+    }
+
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * Enables remembering the keys without user for {@link #findOptionalByName(String, String)},
+     * {@link #findByName(String, String)} and {@link #existsByName(String, String)}, null disables it.
+     */
+    public void setNegativeCache(NegativeCache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
+
+    public AgeIndex getAgeIndex() {
+        return ageIndex;
+    }
+
+    /**
+     * Enables answering {@link #findByMinimalAge(int)} from the given index, null disables it. The index is
+     * kept up to date by the bulk writes of this DAO; call {@link #rebuildAgeIndex()} to load it.
+     */
+    public void setAgeIndex(AgeIndex ageIndex) {
+        this.ageIndex = ageIndex;
+    }
+
+    /**
+     * Loads the age index from the database, reading (username, age) through a forward-only cursor.
+     */
+    public void rebuildAgeIndex() {
+        if (ageIndex == null) {
+            throw new IllegalStateException("No age index set");
+        }
+        Session session = (Session) entityManager.getDelegate();
+        org.hibernate.Query query = session.createQuery(AGE_INDEX_ENTRIES);
+        query.setFetchSize(fetchSize);
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        String[] usernames = new String[1024];
+        int[] ages = new int[1024];
+        int count = 0;
+        try {
+            while (results.next()) {
+                if (count == usernames.length) {
+                    usernames = Arrays.copyOf(usernames, count * 2);
+                    ages = Arrays.copyOf(ages, count * 2);
+                }
+                usernames[count] = (String) results.get(0);
+                ages[count++] = ((Number) results.get(1)).intValue();
+            }
+        } finally {
+            results.close();
+        }
+        ageIndex.load(usernames, ages, count);
+    }
+
+    public OffHeapStore<User> getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    /**
+     * Serves {@link #findByName(String, String)} and {@link #findOptionalByName(String, String)} from the given
+     * off-heap store, null disables it. Misses fall through to the caches and the database and are added to
+     * the store; bulk writes and {@link #invalidate(String, String)} keep it current.
+     */
+    public void setOffHeapStore(OffHeapStore<User> offHeapStore) {
+        this.offHeapStore = offHeapStore;
+    }
+
+    /**
+     * Loads every user into the off-heap store through a forward-only cursor, evicting each one from the
+     * session once encoded. Users beyond the store capacity are left out and read from the database.
+     *
+     * @return the number of stored users
+     */
+    public int rebuildOffHeapStore() {
+        if (offHeapStore == null) {
+            throw new IllegalStateException("No off-heap store set");
+        }
+        offHeapStore.clear();
+        Session session = (Session) entityManager.getDelegate();
+        org.hibernate.Query query = session.createQuery(STORE_ENTRIES);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        int stored = 0;
+        try {
+            while (results.next()) {
+                User user = (User) results.get(2);
+                if (offHeapStore.put((String) results.get(0), (String) results.get(1), user)) {
+                    stored++;
+                }
+                session.evict(user);
+            }
+        } finally {
+            results.close();
+        }
+        offHeapStore.flush();
+        return stored;
+    }
+
+    public SingleFlight<List<Object>, User> getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Coalesces concurrent identical by-name queries that miss the caches, so a burst of lookups of the same
+     * user (e.g. right after its cache entry expired) executes one query. The waiting callers receive the
+     * instance loaded by the first caller, possibly through another DAO and entity manager, so coalescing
+     * only happens when {@link #isReadOnly()} and {@link #isDetachResults()} are set: the instance is then
+     * detached before it is handed out and should be used read-only. Null disables coalescing.
+     */
+    public void setSingleFlight(SingleFlight<List<Object>, User> singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the JDBC fetch size used by the streaming queries.
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchLookupSize() {
+        return batchLookupSize;
+    }
+
+    /**
+     * Sets the maximum number of keys per query of {@link #findByNames(Collection)}.
+     */
+    public void setBatchLookupSize(int batchLookupSize) {
+        if (batchLookupSize <= 0) {
+            throw new IllegalArgumentException("batchLookupSize must be positive: " + batchLookupSize);
+        }
+        this.batchLookupSize = batchLookupSize;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Sets the number of rows after which the bulk writes flush and clear the entity manager. Every flush
+     * executes the statements queued so far, so the JDBC batches hold at most this many rows: a value below
+     * {@link #getJdbcBatchSize()} is the JDBC batch size of this DAO, a larger value only flushes less often.
+     * Hibernate 3.6 has no batch size per session to raise it beyond the persistence unit's.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        if (writeBatchSize <= 0) {
+            throw new IllegalArgumentException("writeBatchSize must be positive: " + writeBatchSize);
+        }
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /**
+     * Gets the hibernate.jdbc.batch_size of the persistence unit, the upper bound of the JDBC batches.
+     *
+     * @return the JDBC batch size, 0 or 1 if the persistence unit doesn't batch
+     */
+    public int getJdbcBatchSize() {
+        Session session = (Session) entityManager.getDelegate();
+        return ((SessionFactoryImplementor) session.getSessionFactory()).getSettings().getJdbcBatchSize();
+    }
+
+    public DaoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Enables recording latency, row and error metrics per method, null (the default) disables it.
+     */
+    public void setMetrics(DaoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Enables logging the queries that exceed the threshold of the given log, null (the default) disables it.
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    public boolean isReuseQueries() {
+        return reuseQueries;
+    }
+
+    /**
+     * Keeps the named queries once created and only rebinds their parameters on the following calls.
+     * Only enable this when the entity manager is owned by this DAO, not with a transaction-scoped proxy.
+     */
+    public void setReuseQueries(boolean reuseQueries) {
+        this.reuseQueries = reuseQueries;
+        preparedQueries.clear();
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Enables the read-only mode for the entity queries: results are loaded read-only (no snapshots, no
+     * dirty-checking) and the queries don't trigger a flush.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isDetachResults() {
+        return detachResults;
+    }
+
+    /**
+     * In read-only mode, detaches every loaded user from the persistence context before returning it.
+     */
+    public void setDetachResults(boolean detachResults) {
+        this.detachResults = detachResults;
+    }
+
+    public int getClearInterval() {
+        return clearInterval;
+    }
+
+    /**
+     * In read-only mode, clears the whole persistence context each time this many users have been loaded,
+     * 0 (the default) never clears. Only use this when no other managed entities share the entity manager.
+     */
+    public void setClearInterval(int clearInterval) {
+        this.clearInterval = clearInterval;
+    }
+
+    /**
+     * Merges a batch of users after loading the existing ones in one query, so merge() finds them in the
+     * persistence context instead of selecting them one by one.
+     */
+    private void mergeWriteBatch(List<User> pending, List<User> written) {
+        PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        List<Object> ids = new ArrayList<Object>(pending.size());
+        for (User user : pending) {
+            Object id = util.getIdentifier(user);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (!ids.isEmpty()) {
+            if (offHeapStore != null || ageIndex != null) {
+                // an upsert may rename a user, its new keys are stored by endWriteBatch
+                Query keys = entityManager.createQuery(KEYS_BY_IDS);
+                keys.setParameter("ids", ids);
+                List<Object[]> entries = keys.getResultList();
+                for (Object[] entry : entries) {
+                    if (offHeapStore != null) {
+                        offHeapStore.remove((String) entry[0], (String) entry[1]);
+                    }
+                    if (ageIndex != null) {
+                        ageIndex.remove((String) entry[2]);
+                    }
+                }
+            }
+            Query query = entityManager.createQuery(FIND_BY_IDS);
+            query.setParameter("ids", ids);
+            query.getResultList();
+        }
+        for (User user : pending) {
+            written.add(entityManager.merge(user));
+        }
+        pending.clear();
+    }
+
+    /**
+     * Flushes and clears a batch of written users, after updating the age index and the off-heap store.
+     */
+    private void endWriteBatch(List<User> written) {
+        entityManager.flush();
+        if (ageIndex != null && !written.isEmpty()) {
+            Query query = entityManager.createQuery(AGE_INDEX_ENTRIES_OF);
+            query.setParameter("users", written);
+            List<Object[]> entries = query.getResultList();
+            for (Object[] entry : entries) {
+                ageIndex.put((String) entry[0], ((Number) entry[1]).intValue());
+            }
+        }
+        if (offHeapStore != null && !written.isEmpty()) {
+            Query query = entityManager.createQuery(STORE_ENTRIES_OF);
+            query.setParameter("users", written);
+            List<Object[]> entries = query.getResultList();
+            for (Object[] entry : entries) {
+                if (!offHeapStore.put((String) entry[0], (String) entry[1], (User) entry[2])) {
+                    offHeapStore.remove((String) entry[0], (String) entry[1]);
+                }
+            }
+        }
+        written.clear();
+        entityManager.clear();
+    }
+
+    /**
+     * Loads the users with the given usernames, in chunks of two times {@link #getBatchLookupSize()}.
+     */
+    private List<User> findByUsernames(String[] usernames) {
+        List<User> result = new ArrayList<User>(usernames.length);
+        int chunkSize = 2 * batchLookupSize;
+        for (int from = 0; from < usernames.length; from += chunkSize) {
+            Query query = prepare(entityManager.createQuery(FIND_BY_USERNAMES));
+            query.setParameter("usernames",
+                Arrays.asList(usernames).subList(from, Math.min(usernames.length, from + chunkSize)));
+            result.addAll(query.getResultList());
+        }
+        return result;
+    }
+
+    private void record(String method, long start, int rows) {
+        record(method, null, start, rows, null, null, null, null);
+    }
+
+    private void record(String method, String query, long start, int rows, String name1, Object value1) {
+        record(method, query, start, rows, name1, value1, null, null);
+    }
+
+    /**
+     * Like {@link #record(String, String, long, int, String, Object)}, boxing the value only when recording.
+     */
+    private void record(String method, String query, long start, int rows, String name1, int value1) {
+        if (metrics != null || slowQueryLog != null) {
+            record(method, query, start, rows, name1, Integer.valueOf(value1), null, null);
+        }
+    }
+
+    /**
+     * Like {@link #record(String, String, long, int, String, Object, String, Object)}, boxing the first value
+     * only when recording.
+     */
+    private void record(String method, String query, long start, int rows, String name1, int value1,
+        String name2, Object value2) {
+        if (metrics != null || slowQueryLog != null) {
+            record(method, query, start, rows, name1, Integer.valueOf(value1), name2, value2);
+        }
+    }
+
+    /**
+     * Records the call in the metrics and the slow query log. The parameters are only formatted when the
+     * query is slow; without metrics and slow query log nothing is allocated, the int overloads box their
+     * values only past that check.
+     */
+    private void record(String method, String query, long start, int rows, String name1, Object value1,
+        String name2, Object value2) {
+        if (metrics == null && slowQueryLog == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (metrics != null) {
+            metrics.record(method, elapsed, rows);
+        }
+        if (slowQueryLog != null && query != null && slowQueryLog.isSlow(elapsed)) {
+            String parameters = name1 + "=" + value1;
+            if (name2 != null) {
+                parameters += ", " + name2 + "=" + value2;
+            }
+            slowQueryLog.log(query, parameters, rows, elapsed);
+        }
+    }
+
+    private Query namedQuery(NamedQueryHandle handle) {
+        if (!reuseQueries) {
+            return entityManager.createNamedQuery(handle.getQueryName());
+        }
+        Query query = preparedQueries.get(handle);
+        if (query == null) {
+            query = handle.create(entityManager);
+            preparedQueries.put(handle, query);
+        }
+        return query;
+    }
+
+    private Query prepare(Query query) {
+        if (readOnly) {
+            query.setHint(HINT_READ_ONLY, Boolean.TRUE);
+            query.setHint(HINT_FLUSH_MODE, "MANUAL");
+        }
+        return query;
+    }
+
+    private void release(Collection<User> users) {
+        if (!readOnly) {
+            return;
+        }
+        if (detachResults) {
+            for (User user : users) {
+                entityManager.detach(user);
+            }
+        }
+        if (clearInterval > 0) {
+            loadedSinceClear += users.size();
+            if (loadedSinceClear >= clearInterval) {
+                entityManager.clear();
+                loadedSinceClear = 0;
+            }
+        }
+    }
+
+    /**
+     * The requested keys equal to a returned row key ignoring case and trailing blanks.
+     */
+    private static List<NameKey> leniently(List<NameKey> requested, NameKey rowKey) {
+        NameKey lenient = rowKey.toLenient();
+        List<NameKey> keys = new ArrayList<NameKey>(1);
+        for (NameKey key : requested) {
+            if (key.toLenient().equals(lenient)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static String createFindByNamesQuery(int keyCount, boolean rowValues) {
+        StringBuilder jpql = new StringBuilder("select u, u.name, u.firstName from User u where ");
+        if (rowValues) {
+            jpql.append("(u.name, u.firstName) in (");
+            for (int i = 0; i < keyCount; i++) {
+                jpql.append(i == 0 ? "" : ", ")
+                    .append("(:name").append(i).append(", :firstName").append(i).append(')');
+            }
+            jpql.append(')');
+        } else {
+            for (int i = 0; i < keyCount; i++) {
+                jpql.append(i == 0 ? "" : " or ")
+                    .append("(u.name = :name").append(i).append(" and u.firstName = :firstName").append(i).append(')');
+            }
+        }
+        return jpql.toString();
+    }
+
+    private Dialect dialect() {
+        Session session = (Session) entityManager.getDelegate();
+        return ((SessionFactoryImplementor) session.getSessionFactory()).getDialect();
+    }
+
+    private User lookupByName(String name, String firstName) {
+        if (offHeapStore != null) {
+            User user = offHeapStore.get(name, firstName);
+            if (user != null) {
+                return user;
+            }
+        }
+        if (!sharesResults() && negativeCache == null) {
+            return storeLoaded(name, firstName, queryByName(name, firstName));
+        }
+        NameKey key = new NameKey(name, firstName);
+        User user = sharesResults() ? cache.get(key) : null;
+        if (user != null) {
+            return user;
+        }
+        if (negativeCache != null && negativeCache.isMiss(key)) {
+            return null;
+        }
+        user = queryByName(name, firstName);
+        if (user == null) {
+            if (negativeCache != null) {
+                negativeCache.putMiss(key);
+            }
+        } else if (sharesResults()) {
+            cache.put(key, user);
+        }
+        return storeLoaded(name, firstName, user);
+    }
+
+    /**
+     * Whether the loaded users may be handed to other callers through the cache: a managed instance is bound
+     * to this entity manager and goes stale once the persistence context is cleared, so only detached results
+     * are cached.
+     */
+    private boolean sharesResults() {
+        return cache != null && readOnly && detachResults;
+    }
+
+    /**
+     * Adds a user read from the database to the off-heap store (if any).
+     */
+    private User storeLoaded(String name, String firstName, User user) {
+        if (offHeapStore != null && user != null) {
+            offHeapStore.put(name, firstName, user);
+        }
+        return user;
+    }
+
+    /**
+     * Runs the by-name query, joining an identical query in flight when coalescing is enabled. A managed
+     * instance must never reach another caller, so only detached results are coalesced.
+     */
+    private User queryByName(final String name, final String firstName) {
+        if (singleFlight == null || !readOnly || !detachResults) {
+            return executeQueryByName(name, firstName);
+        }
+        List<Object> key = Arrays.<Object>asList(FIND_BY_NAME.getQueryName(), name, firstName);
+        return singleFlight.execute(key, new Callable<User>() {
+
+            public User call() {
+                return executeQueryByName(name, firstName);
+            }
+        });
+    }
+
+    /**
+     * Runs the named query without getSingleResult, so a miss doesn't cost an exception.
+     */
+    private User executeQueryByName(String name, String firstName) {
+        Query query = prepare(namedQuery(FIND_BY_NAME));
+        FIND_BY_NAME.bind(query, name, firstName);
+        query.setMaxResults(2);
+        List<User> result = query.getResultList();
+        if (result.isEmpty()) {
+            return null;
+        }
+        if (result.size() > 1) {
+            throw new NonUniqueResultException("More than one user " + name + " " + firstName);
+        }
+        release(result);
+        return result.get(0);
+    }
+
+    /**
+     * The NoResultException of {@link #findByName(String, String)}, without the cost of a stack trace.
+     */
+    private static final class MissingUserException extends NoResultException {
+
+        private static final long serialVersionUID = 1L;
+
+        MissingUserException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.example.dao;
+
+/**
+ * The Class UsernameAge. Immutable (username, age) projection of a user. Instances are created by
+ * constructor-expression queries and never enter the persistence context.
+ */
+public final class UsernameAge {
+
+    private final String username;
+
+    private final int age;
+
+    /**
+     * Instantiates a new username age.
+     * 
+     * @param username the username
+     * @param age the age
+     */
+    public UsernameAge(final String username, final int age) {
+        super();
+        this.username = username;
+        this.age = age;
+    }
+
+    /**
+     * Gets the username.
+     * 
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the age.
+     * 
+     * @return the age
+     */
+    public int getAge() {
+        return age;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UsernameAge)) {
+            return false;
+        }
+        UsernameAge other = (UsernameAge) o;
+        return age == other.age && (username == null ? other.username == null : username.equals(other.username));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (username == null ? 0 : username.hashCode()) + age;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "(" + username + ", " + age + ")";
+    }
+
+}
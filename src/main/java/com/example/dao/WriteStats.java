@@ -0,0 +1,65 @@
+package com.example.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class WriteStats. Outcome of a bulk write of {@link UserDAO}: the number of rows written and the
+ * time it took.
+ */
+public final class WriteStats {
+
+    private final long rows;
+
+    private final long elapsedNanos;
+
+    /**
+     * Instantiates new write stats.
+     * 
+     * @param rows the number of rows written
+     * @param elapsedNanos the elapsed time in nanoseconds
+     */
+    public WriteStats(final long rows, final long elapsedNanos) {
+        super();
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of rows written.
+     * 
+     * @return the rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the elapsed time.
+     * 
+     * @param unit the unit
+     * 
+     * @return the elapsed time in the given unit
+     */
+    public long getElapsed(final TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the throughput.
+     * 
+     * @return the rows per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return rows + " rows in " + getElapsed(TimeUnit.MILLISECONDS) + " ms ("
+            + Math.round(getRowsPerSecond()) + " rows/s)";
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.example.dao.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class DaoMetrics. The {@link MethodMetrics} of all methods of a DAO. Recording only allocates the
+ * first time a method is seen.
+ */
+public class DaoMetrics {
+
+    private final String name;
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<String, MethodMetrics>();
+
+    /**
+     * Instantiates new DAO metrics.
+     * 
+     * @param name the name of the DAO, used by the exporters
+     */
+    public DaoMetrics(final String name) {
+        super();
+        this.name = name;
+    }
+
+    /**
+     * Gets the name.
+     * 
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a call.
+     * 
+     * @param method the method name
+     * @param nanos the latency in nanoseconds
+     * @param rows the number of rows returned or written, negative if the call failed
+     */
+    public void record(final String method, final long nanos, final int rows) {
+        getMethod(method).record(nanos, rows);
+    }
+
+    /**
+     * Gets the metrics of a method, creating them if needed.
+     * 
+     * @param method the method name
+     * 
+     * @return the method metrics
+     */
+    public MethodMetrics getMethod(final String method) {
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = new MethodMetrics(method);
+            MethodMetrics existing = methods.putIfAbsent(method, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of all methods called so far.
+     * 
+     * @return the method metrics sorted by method name
+     */
+    public List<MethodMetrics> getMethods() {
+        List<MethodMetrics> result = new ArrayList<MethodMetrics>(methods.values());
+        Collections.sort(result, new Comparator<MethodMetrics>() {
+            public int compare(final MethodMetrics o1, final MethodMetrics o2) {
+                return o1.getMethod().compareTo(o2.getMethod());
+            }
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.example.dao.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The Class JmxMetricsExporter. Registers an MBean per DAO method under
+ * {@code com.example.dao:type=<dao name>,method=<method>}. The MBeans read the live metrics, so exporting
+ * again is only needed to pick up methods that were called for the first time since the last export.
+ */
+public class JmxMetricsExporter implements MetricsExporter {
+
+    private static final String DOMAIN = "com.example.dao";
+
+    private final MBeanServer server;
+
+    /**
+     * Instantiates a new JMX metrics exporter.
+     * 
+     * @param server the MBean server, e.g. the platform MBean server
+     */
+    public JmxMetricsExporter(final MBeanServer server) {
+        super();
+        this.server = server;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void export(final DaoMetrics metrics) {
+        for (MethodMetrics method : metrics.getMethods()) {
+            try {
+                ObjectName name = nameOf(metrics, method);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(method, name);
+                }
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register metrics of " + method.getMethod(), e);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBeans of a DAO, e.g. when the DAO is discarded.
+     * 
+     * @param metrics the metrics of the DAO
+     */
+    public void unexport(final DaoMetrics metrics) {
+        for (MethodMetrics method : metrics.getMethods()) {
+            try {
+                ObjectName name = nameOf(metrics, method);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not unregister metrics of " + method.getMethod(), e);
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the MBean of a method.
+     * 
+     * @param metrics the metrics of the DAO
+     * @param method the metrics of the method
+     * 
+     * @return the object name
+     * 
+     * @throws JMException if the name is invalid
+     */
+    static ObjectName nameOf(final DaoMetrics metrics, final MethodMetrics method) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + ObjectName.quote(metrics.getName()) + ",method="
+            + method.getMethod());
+    }
+
+}
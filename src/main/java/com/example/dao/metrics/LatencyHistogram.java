@@ -0,0 +1,130 @@
+package com.example.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class LatencyHistogram. A lock-free, allocation-free log-linear histogram of latencies in
+ * nanoseconds, in the spirit of HdrHistogram: every power of two is split in 16 linear buckets, which
+ * keeps the relative error of the reported percentiles below 1/16 over the full range of long values.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     * 
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        long value = nanos < 0 ? 0 : nanos;
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * 
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the maximum recorded value.
+     * 
+     * @return the max in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value at the given percentile. Values recorded concurrently may or may not be included.
+     * 
+     * @param percentile the percentile (0 - 100)
+     * 
+     * @return the highest value equivalent to the value at the percentile in nanoseconds, 0 if empty
+     */
+    public long getValueAtPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Resets the histogram. Not atomic with respect to concurrent recordings.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Gets the bucket index of a value.
+     * 
+     * @param value the (positive) value
+     * 
+     * @return the index
+     */
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + top - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * Gets the highest value that maps to a bucket.
+     * 
+     * @param index the index
+     * 
+     * @return the highest value
+     */
+    static long highestValueOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        long highest = ((top + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+}
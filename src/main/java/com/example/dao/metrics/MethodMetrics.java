@@ -0,0 +1,108 @@
+package com.example.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class MethodMetrics. Latency histogram, row count and error count of one DAO method.
+ */
+public final class MethodMetrics implements MethodMetricsMBean {
+
+    private final String method;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Instantiates new method metrics.
+     * 
+     * @param method the method name
+     */
+    public MethodMetrics(final String method) {
+        super();
+        this.method = method;
+    }
+
+    /**
+     * Records a call.
+     * 
+     * @param nanos the latency in nanoseconds
+     * @param rowCount the number of rows returned or written, negative if the call failed
+     */
+    public void record(final long nanos, final int rowCount) {
+        latencies.record(nanos);
+        if (rowCount < 0) {
+            errors.incrementAndGet();
+        } else if (rowCount > 0) {
+            rows.addAndGet(rowCount);
+        }
+    }
+
+    /**
+     * Gets the latency histogram.
+     * 
+     * @return the latencies in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getCalls() {
+        return latencies.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getP50Micros() {
+        return latencies.getValueAtPercentile(50) / 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getP99Micros() {
+        return latencies.getValueAtPercentile(99) / 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getP999Micros() {
+        return latencies.getValueAtPercentile(99.9) / 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxMicros() {
+        return latencies.getMax() / 1000;
+    }
+
+}
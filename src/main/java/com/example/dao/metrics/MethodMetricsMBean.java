@@ -0,0 +1,64 @@
+package com.example.dao.metrics;
+
+/**
+ * The Interface MethodMetricsMBean. The JMX view of {@link MethodMetrics}, latencies are in microseconds.
+ */
+public interface MethodMetricsMBean {
+
+    /**
+     * Gets the method name.
+     * 
+     * @return the method
+     */
+    String getMethod();
+
+    /**
+     * Gets the number of calls.
+     * 
+     * @return the calls
+     */
+    long getCalls();
+
+    /**
+     * Gets the number of failed calls.
+     * 
+     * @return the errors
+     */
+    long getErrors();
+
+    /**
+     * Gets the number of rows returned or written.
+     * 
+     * @return the rows
+     */
+    long getRows();
+
+    /**
+     * Gets the median latency.
+     * 
+     * @return the p50 in microseconds
+     */
+    long getP50Micros();
+
+    /**
+     * Gets the 99th percentile latency.
+     * 
+     * @return the p99 in microseconds
+     */
+    long getP99Micros();
+
+    /**
+     * Gets the 99.9th percentile latency.
+     * 
+     * @return the p999 in microseconds
+     */
+    long getP999Micros();
+
+    /**
+     * Gets the maximum latency.
+     * 
+     * @return the max in microseconds
+     */
+    long getMaxMicros();
+
+}
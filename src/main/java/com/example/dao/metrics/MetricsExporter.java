@@ -0,0 +1,15 @@
+package com.example.dao.metrics;
+
+/**
+ * The Interface MetricsExporter. Publishes {@link DaoMetrics} to a monitoring system.
+ */
+public interface MetricsExporter {
+
+    /**
+     * Exports the metrics.
+     * 
+     * @param metrics the metrics
+     */
+    void export(DaoMetrics metrics);
+
+}
@@ -0,0 +1,109 @@
+package com.example.dao.metrics;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class SlowQuery. An entry of the {@link SlowQueryLog}.
+ */
+public final class SlowQuery {
+
+    private final long sequence;
+
+    private final long timestamp;
+
+    private final String query;
+
+    private final String parameters;
+
+    private final int rows;
+
+    private final long elapsedNanos;
+
+    /**
+     * Instantiates a new slow query.
+     * 
+     * @param sequence the sequence number in the log
+     * @param timestamp the time the query ended in milliseconds since the epoch
+     * @param query the named query name or the query
+     * @param parameters the bound parameters
+     * @param rows the number of rows, negative if the query failed
+     * @param elapsedNanos the elapsed time in nanoseconds
+     */
+    SlowQuery(final long sequence, final long timestamp, final String query, final String parameters,
+        final int rows, final long elapsedNanos) {
+        super();
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.query = query;
+        this.parameters = parameters;
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the sequence number.
+     * 
+     * @return the sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the timestamp.
+     * 
+     * @return the time the query ended in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the query.
+     * 
+     * @return the named query name or the query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the bound parameters.
+     * 
+     * @return the parameters as name=value pairs
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gets the row count.
+     * 
+     * @return the rows, negative if the query failed
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the elapsed time.
+     * 
+     * @param unit the unit
+     * 
+     * @return the elapsed time in the given unit
+     */
+    public long getElapsed(final TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return new Date(timestamp) + " " + getElapsed(TimeUnit.MILLISECONDS) + " ms "
+            + (rows < 0 ? "failed" : rows + " rows") + " " + query + " [" + parameters + "]";
+    }
+
+}
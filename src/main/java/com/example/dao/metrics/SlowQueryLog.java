@@ -0,0 +1,107 @@
+package com.example.dao.metrics;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Class SlowQueryLog. Keeps the most recent queries that took longer than a threshold in a bounded
+ * lock-free ring buffer. Logging never blocks: when the buffer is full the oldest entry is overwritten.
+ */
+public class SlowQueryLog {
+
+    private final long thresholdNanos;
+
+    private final AtomicReferenceArray<SlowQuery> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Instantiates a new slow query log.
+     * 
+     * @param threshold the latency from which a query is logged
+     * @param unit the unit of the threshold
+     * @param capacity the number of entries kept
+     */
+    public SlowQueryLog(final long threshold, final TimeUnit unit, final int capacity) {
+        super();
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.entries = new AtomicReferenceArray<SlowQuery>(capacity);
+    }
+
+    /**
+     * Checks whether a latency exceeds the threshold.
+     * 
+     * @param elapsedNanos the latency in nanoseconds
+     * 
+     * @return true, if the query must be logged
+     */
+    public boolean isSlow(final long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * Logs a query if it exceeds the threshold.
+     * 
+     * @param query the named query name or the query
+     * @param parameters the bound parameters as name=value pairs
+     * @param rows the number of rows, negative if the query failed
+     * @param elapsedNanos the latency in nanoseconds
+     */
+    public void log(final String query, final String parameters, final int rows, final long elapsedNanos) {
+        if (!isSlow(elapsedNanos)) {
+            return;
+        }
+        long seq = sequence.getAndIncrement();
+        entries.set((int) (seq % entries.length()),
+            new SlowQuery(seq, System.currentTimeMillis(), query, parameters, rows, elapsedNanos));
+    }
+
+    /**
+     * Gets the number of queries logged since the creation of the log, including overwritten ones.
+     * 
+     * @return the logged count
+     */
+    public long getLoggedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Gets the entries currently in the buffer. Entries that are overwritten while dumping are skipped.
+     * 
+     * @return the entries, oldest first
+     */
+    public List<SlowQuery> getEntries() {
+        long end = sequence.get();
+        long begin = Math.max(0, end - entries.length());
+        List<SlowQuery> result = new ArrayList<SlowQuery>((int) (end - begin));
+        for (long seq = begin; seq < end; seq++) {
+            SlowQuery entry = entries.get((int) (seq % entries.length()));
+            if (entry != null && entry.getSequence() == seq) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dumps the entries, one per line.
+     * 
+     * @param out the writer
+     */
+    public void dump(final Writer out) {
+        PrintWriter writer = new PrintWriter(out);
+        for (SlowQuery entry : getEntries()) {
+            writer.println(entry);
+        }
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.example.dao.metrics;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * The Class TextMetricsExporter. Dumps the metrics as a text table, one line per method.
+ */
+public class TextMetricsExporter implements MetricsExporter {
+
+    private static final String FORMAT = "%-28s %10s %8s %12s %10s %10s %10s %10s%n";
+
+    private final PrintWriter out;
+
+    /**
+     * Instantiates a new text metrics exporter.
+     * 
+     * @param out the writer to dump to
+     */
+    public TextMetricsExporter(final Writer out) {
+        super();
+        this.out = new PrintWriter(out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void export(final DaoMetrics metrics) {
+        out.println(metrics.getName() + " (latencies in us)");
+        out.printf(FORMAT, "method", "calls", "errors", "rows", "p50", "p99", "p999", "max");
+        for (MethodMetrics method : metrics.getMethods()) {
+            out.printf(FORMAT, method.getMethod(), method.getCalls(), method.getErrors(), method.getRows(),
+                method.getP50Micros(), method.getP99Micros(), method.getP999Micros(), method.getMaxMicros());
+        }
+        out.flush();
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class AgeIndexTest {
+
+    @Test
+    public void testFindUsernames() {
+        AgeIndex index = new AgeIndex();
+        index.load(new String[] {"jdoe", "smith", "baby"}, new int[] {17, 20, 1}, 3);
+        assertEquals(Arrays.asList("smith"), Arrays.asList(index.findUsernames(18)));
+        assertEquals(Arrays.asList("jdoe", "smith"), Arrays.asList(index.findUsernames(17)));
+        assertEquals(0, index.findUsernames(21).length);
+    }
+
+    @Test
+    public void testPutAddsAndUpdates() {
+        AgeIndex index = new AgeIndex();
+        index.load(new String[] {"jdoe", "smith"}, new int[] {17, 20}, 2);
+        index.put("jdoe", 18);
+        index.put("new", 30);
+        index.put("new", 19);
+        assertEquals(Arrays.asList("jdoe", "new", "smith"), Arrays.asList(index.findUsernames(18)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        AgeIndex index = new AgeIndex();
+        index.load(new String[] {"jdoe", "smith"}, new int[] {17, 20}, 2);
+        index.remove("smith");
+        index.put("new", 30);
+        index.remove("new");
+        index.remove("unknown");
+        assertEquals(0, index.findUsernames(18).length);
+        // a renamed user: the old username is removed, then the new one added
+        index.remove("jdoe");
+        index.put("jdoe2", 17);
+        index.put("smith", 21);
+        index.remove("smith");
+        index.put("smith", 22);
+        assertEquals(Arrays.asList("jdoe2", "smith"), Arrays.asList(index.findUsernames(0)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testManyPuts() {
+        AgeIndex index = new AgeIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.put("user" + i, i % 100);
+        }
+        assertEquals(5000, index.size());
+        assertEquals(500, index.findUsernames(90).length);
+    }
+
+}
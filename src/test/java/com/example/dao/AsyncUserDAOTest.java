@@ -0,0 +1,107 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.model.User;
+
+public class AsyncUserDAOTest {
+
+    private ExecutorService executor;
+
+    private StubEntityManagerFactory factory;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final User found = new User();
+
+    private AsyncUserDAO dao;
+
+    @Before
+    public void init() {
+        executor = Executors.newFixedThreadPool(8);
+        factory = new StubEntityManagerFactory();
+        dao = new AsyncUserDAO(factory.factory, executor, 2) {
+            @Override
+            protected UserDAO createDao(final EntityManager entityManager) {
+                assertTrue(factory.created.contains(entityManager));
+                return new StubUserDAO() {
+                    @Override
+                    public User findByName(final String name, final String firstName) {
+                        int current = inFlight.incrementAndGet();
+                        try {
+                            int max = maxInFlight.get();
+                            while (current > max && !maxInFlight.compareAndSet(max, current)) {
+                                max = maxInFlight.get();
+                            }
+                            if ("nobody".equals(name)) {
+                                throw new IllegalArgumentException(name);
+                            }
+                            Thread.sleep(50);
+                            return found;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException(e);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    @After
+    public void cleanup() {
+        dao.shutdown();
+    }
+
+    @Test
+    public void testConcurrencyLimitAndEntityManagerPerCall() throws Exception {
+        List<CompletableFuture<User>> futures = new ArrayList<CompletableFuture<User>>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(dao.findByName("doe", "john" + i));
+        }
+        for (CompletableFuture<User> future : futures) {
+            assertSame(found, future.get());
+        }
+        assertEquals(2, maxInFlight.get());
+        assertEquals(8, factory.created.size());
+        assertEquals(8, new HashSet<EntityManager>(factory.created).size());
+        assertEquals(new HashSet<EntityManager>(factory.created), new HashSet<EntityManager>(factory.closed));
+    }
+
+    @Test
+    public void testFailureReleasesEntityManagerAndPermit() throws Exception {
+        try {
+            dao.findByName("nobody", null).get();
+            fail("Failure of the call not propagated");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(factory.created, factory.closed);
+        assertSame(found, dao.findByName("doe", "john").get());
+        assertSame(found, dao.findByName("doe", "jane").get());
+        assertEquals(3, factory.closed.size());
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.example.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ejb.Ejb3Configuration;
+
+import com.example.model.User;
+
+/**
+ * The Class InMemoryUserDatabase. An in-process HSQLDB 'mem:' database with the user table, for the tests
+ * that need more than one database (replicas, shards). Users are inserted over JDBC so a test decides
+ * exactly which database holds them.
+ */
+class InMemoryUserDatabase {
+
+    private static final String INSERT = "insert into user (username, lastName, firstname, age) values (?, ?, ?, ?)";
+
+    private final String url;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Creates the database and its schema.
+     * 
+     * @param name the database name, unique per test
+     */
+    InMemoryUserDatabase(final String name) {
+        url = "jdbc:hsqldb:mem:" + name;
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        properties.setProperty("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver");
+        properties.setProperty("hibernate.connection.url", url);
+        properties.setProperty("hibernate.connection.username", "sa");
+        properties.setProperty("hibernate.connection.password", "");
+        properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        entityManagerFactory = new Ejb3Configuration().addAnnotatedClass(User.class).addProperties(properties)
+            .buildEntityManagerFactory();
+    }
+
+    /**
+     * Gets the entity manager factory.
+     * 
+     * @return the entity manager factory
+     */
+    EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * Inserts a user.
+     * 
+     * @param username the username
+     * @param name the name
+     * @param firstName the first name
+     * @param age the age
+     * 
+     * @throws SQLException on an insert error
+     */
+    void insert(final String username, final String name, final String firstName, final int age)
+        throws SQLException {
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            PreparedStatement insert = connection.prepareStatement(INSERT);
+            insert.setString(1, username);
+            insert.setString(2, name);
+            insert.setString(3, firstName);
+            insert.setInt(4, age);
+            insert.executeUpdate();
+            insert.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes the entity manager factory, which drops the schema.
+     */
+    void close() {
+        entityManagerFactory.close();
+    }
+
+}
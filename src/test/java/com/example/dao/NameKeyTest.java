@@ -0,0 +1,17 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class NameKeyTest {
+
+    @Test
+    public void testLenientIgnoresCaseAndTrailingBlanks() {
+        assertEquals(new NameKey("doe", "john").toLenient(), new NameKey("Doe  ", "JOHN").toLenient());
+        assertEquals(new NameKey(null, ""), new NameKey(null, "   ").toLenient());
+        assertFalse(new NameKey("doe", "john").toLenient().equals(new NameKey(" doe", "john").toLenient()));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class NegativeCacheTest {
+
+    private long time;
+
+    private NegativeCache cache;
+
+    @Before
+    public void init() {
+        cache = new NegativeCache(2, 10, TimeUnit.NANOSECONDS) {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void testRemembersMiss() {
+        assertFalse(cache.isMiss(new NameKey("doe", "john")));
+        cache.putMiss(new NameKey("doe", "john"));
+        assertTrue(cache.isMiss(new NameKey("doe", "john")));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testExpiredMissIsDropped() {
+        cache.putMiss(new NameKey("doe", "john"));
+        time = 9;
+        assertTrue(cache.isMiss(new NameKey("doe", "john")));
+        time = 10;
+        assertFalse(cache.isMiss(new NameKey("doe", "john")));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testOldestMissIsEvicted() {
+        cache.putMiss(new NameKey("doe", "john"));
+        cache.putMiss(new NameKey("smith", "jack"));
+        cache.putMiss(new NameKey("doe", "jane"));
+        assertEquals(2, cache.size());
+        assertFalse(cache.isMiss(new NameKey("doe", "john")));
+        assertTrue(cache.isMiss(new NameKey("doe", "jane")));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.putMiss(new NameKey("doe", "john"));
+        cache.putMiss(new NameKey("smith", "jack"));
+        cache.invalidate(new NameKey("doe", "john"));
+        assertFalse(cache.isMiss(new NameKey("doe", "john")));
+        assertTrue(cache.isMiss(new NameKey("smith", "jack")));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        cache.putMiss(new NameKey("doe", "john"));
+        cache.putMiss(new NameKey("smith", "jack"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertFalse(cache.isMiss(new NameKey("smith", "jack")));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class OffHeapStoreTest {
+
+    private static final OffHeapStore.Codec<Integer> INT_CODEC = new OffHeapStore.Codec<Integer>() {
+
+        public int getSize() {
+            return 4;
+        }
+
+        public void encode(final Integer value, final ByteBuffer buffer, final int offset) {
+            buffer.putInt(offset, value.intValue());
+        }
+
+        public Integer decode(final ByteBuffer buffer, final int offset) {
+            return Integer.valueOf(buffer.getInt(offset));
+        }
+    };
+
+    @Test
+    public void testPutGetReplace() {
+        OffHeapStore<Integer> store = new OffHeapStore<Integer>(10, 8, INT_CODEC);
+        assertTrue(store.put("doe", "john", 17));
+        assertTrue(store.put("doe", null, 1));
+        assertEquals(Integer.valueOf(17), store.get("doe", "john"));
+        assertEquals(Integer.valueOf(1), store.get("doe", null));
+        assertNull(store.get("doe", "jane"));
+        assertTrue(store.put("doe", "john", 18));
+        assertEquals(Integer.valueOf(18), store.get("doe", "john"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testRejectsLongKeysAndFullStore() {
+        OffHeapStore<Integer> store = new OffHeapStore<Integer>(2, 4, INT_CODEC);
+        assertFalse(store.put("toolong", "a", 1));
+        assertTrue(store.put("a", "a", 1));
+        assertTrue(store.put("b", "b", 2));
+        assertFalse(store.put("c", "c", 3));
+        assertNull(store.get("toolong", "a"));
+    }
+
+    @Test
+    public void testRemoveKeepsOtherKeysReachable() {
+        OffHeapStore<Integer> store = new OffHeapStore<Integer>(1000, 16, INT_CODEC);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(store.put("name" + i, "first" + i, i));
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertTrue(store.remove("name" + i, "first" + i));
+        }
+        assertFalse(store.remove("name0", "first0"));
+        for (int i = 0; i < 1000; i++) {
+            Integer value = store.get("name" + i, "first" + i);
+            if (i % 3 == 0) {
+                assertNull(value);
+            } else {
+                assertEquals(Integer.valueOf(i), value);
+            }
+        }
+        assertEquals(666, store.size());
+    }
+
+    @Test
+    public void testReopenMappedFile() throws Exception {
+        File file = File.createTempFile("users", ".store");
+        file.deleteOnExit();
+        OffHeapStore<Integer> store = OffHeapStore.open(file, 100, 8, INT_CODEC);
+        store.put("doe", "john", 17);
+        store.put("smith", "jack", 20);
+        store.flush();
+        OffHeapStore<Integer> reopened = OffHeapStore.open(file, 100, 8, INT_CODEC);
+        assertEquals(2, reopened.size());
+        assertEquals(Integer.valueOf(20), reopened.get("smith", "jack"));
+        OffHeapStore<Integer> resized = OffHeapStore.open(file, 200, 8, INT_CODEC);
+        assertEquals(0, resized.size());
+    }
+
+}
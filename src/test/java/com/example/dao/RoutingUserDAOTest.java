@@ -0,0 +1,101 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.model.User;
+
+public class RoutingUserDAOTest {
+
+    private StubUserDAO primary;
+
+    private StubUserDAO replica1;
+
+    private StubUserDAO replica2;
+
+    private RoutingUserDAO dao;
+
+    @Before
+    public void init() {
+        primary = new StubUserDAO();
+        replica1 = new StubUserDAO();
+        replica2 = new StubUserDAO();
+        dao = new RoutingUserDAO(primary, Arrays.<UserDAO>asList(replica1, replica2),
+            new ReplicaSelector(2, ReplicaSelector.Strategy.ROUND_ROBIN));
+    }
+
+    @Test
+    public void testReadsAreSpreadOverReplicas() {
+        assertSame(replica1.user, dao.findByName("doe", "john"));
+        assertSame(replica2.user, dao.findByName("doe", "john"));
+        assertSame(replica1.user, dao.findByName("doe", "john"));
+        assertEquals(0, primary.reads.get());
+    }
+
+    @Test
+    public void testReadYourWrites() {
+        dao.saveAll(Collections.<User>emptyList());
+        assertSame(primary.user, dao.findByName("doe", "john"));
+        dao.setReadYourWritesWindow(0, TimeUnit.SECONDS);
+        assertSame(replica1.user, dao.findByName("doe", "john"));
+    }
+
+    @Test
+    public void testReadFromPrimary() {
+        dao.setReadFromPrimary(true);
+        assertSame(primary.user, dao.findByName("doe", "john"));
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        ReplicaSelector selector = new ReplicaSelector(2, ReplicaSelector.Strategy.LEAST_OUTSTANDING);
+        int busy = selector.acquire();
+        assertEquals(1 - busy, selector.acquire());
+        selector.release(1 - busy);
+        assertEquals(1 - busy, selector.acquire());
+    }
+
+    @Test
+    public void testTwoInMemoryDatabases() throws SQLException {
+        InMemoryUserDatabase primaryDb = new InMemoryUserDatabase("routingPrimary");
+        InMemoryUserDatabase replicaDb = new InMemoryUserDatabase("routingReplica");
+        EntityManager primaryEm = primaryDb.getEntityManagerFactory().createEntityManager();
+        EntityManager replicaEm = replicaDb.getEntityManagerFactory().createEntityManager();
+        try {
+            // the replica lags behind: the user is only on the primary
+            primaryDb.insert("jdoe", "doe", "john", 17);
+            UserDAO primaryDao = new UserDAO();
+            primaryDao.setEntityManager(primaryEm);
+            UserDAO replicaDao = new UserDAO();
+            replicaDao.setEntityManager(replicaEm);
+            RoutingUserDAO routing = new RoutingUserDAO(primaryDao, Arrays.asList(replicaDao),
+                new ReplicaSelector(1, ReplicaSelector.Strategy.ROUND_ROBIN));
+
+            assertFalse(routing.findOptionalByName("doe", "john").isPresent());
+            primaryEm.getTransaction().begin();
+            routing.saveAll(Collections.<User>emptyList());
+            primaryEm.getTransaction().commit();
+            assertTrue(routing.findOptionalByName("doe", "john").isPresent());
+            routing.setReadYourWritesWindow(0, TimeUnit.SECONDS);
+            assertFalse(routing.findOptionalByName("doe", "john").isPresent());
+        } finally {
+            primaryEm.close();
+            replicaEm.close();
+            primaryDb.close();
+            replicaDb.close();
+        }
+    }
+
+}
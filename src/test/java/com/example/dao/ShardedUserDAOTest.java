@@ -0,0 +1,219 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.reflectionassert.ReflectionAssert;
+
+import com.example.model.User;
+
+public class ShardedUserDAOTest {
+
+    private ExecutorService executor;
+
+    private List<StubEntityManagerFactory> factories;
+
+    private List<StubUserDAO> stubs;
+
+    private ShardedUserDAO dao;
+
+    @Before
+    public void init() {
+        executor = Executors.newFixedThreadPool(3);
+        factories = Arrays.asList(new StubEntityManagerFactory(), new StubEntityManagerFactory(),
+            new StubEntityManagerFactory());
+        stubs = Arrays.asList(new StubUserDAO(), new StubUserDAO(), new StubUserDAO());
+        dao = new StubShardedUserDAO(stubs);
+    }
+
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testShardHashIsPinned() {
+        assertEquals(292984781, ShardedUserDAO.shardHash("", ""));
+        assertEquals(1759244822, ShardedUserDAO.shardHash("doe", "john"));
+        assertEquals(969690837, ShardedUserDAO.shardHash("smith", "jack"));
+        assertEquals(205852891, ShardedUserDAO.shardHash("M\u00fcller", "J\u00fcrgen"));
+        assertEquals(343810643, ShardedUserDAO.shardHash("doe", null));
+        assertEquals(ShardedUserDAO.shardHash("doe", ""), ShardedUserDAO.shardHash("doe", null));
+        assertFalse(ShardedUserDAO.shardHash("do", "ejohn") == ShardedUserDAO.shardHash("doe", "john"));
+        assertEquals((1759244822 & Integer.MAX_VALUE) % 3, dao.shardOf("doe", "john"));
+    }
+
+    @Test
+    public void testFindByNameGoesToOneShard() {
+        int shard = dao.shardOf("doe", "john");
+        assertSame(stubs.get(shard).user, dao.findByName("doe", "john"));
+        for (int i = 0; i < stubs.size(); i++) {
+            assertEquals(i == shard ? 1 : 0, stubs.get(i).reads.get());
+            assertEquals(i == shard ? 1 : 0, factories.get(i).created.size());
+            assertEquals(factories.get(i).created, factories.get(i).closed);
+        }
+        assertEquals(1, dao.getShardMetrics(shard).getMethod("findByName").getCalls());
+    }
+
+    @Test
+    public void testFindByMinimalAgeGathersAllShards() {
+        List<User> result = dao.findByMinimalAge(18);
+        assertEquals(3, result.size());
+        for (StubUserDAO stub : stubs) {
+            assertTrue(result.contains(stub.user));
+        }
+        for (StubEntityManagerFactory factory : factories) {
+            assertEquals(1, factory.created.size());
+            assertEquals(factory.created, factory.closed);
+        }
+        assertEquals(1, dao.getShardMetrics(2).getMethod("findByMinimalAge").getRows());
+    }
+
+    @Test
+    public void testFailingShardCancelsTheOthers() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        stubs = Arrays.<StubUserDAO>asList(new StubUserDAO() {
+            @Override
+            public List<User> findByMinimalAge(final int minimumAge) {
+                try {
+                    started.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalArgumentException("shard down");
+            }
+        }, blockingShard(started, cancelled), new StubUserDAO());
+        dao = new StubShardedUserDAO(stubs);
+        try {
+            dao.findByMinimalAge(18);
+            fail("Shard failure not propagated");
+        } catch (IllegalArgumentException e) {
+            assertEquals("shard down", e.getMessage());
+        }
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseCancelsPendingShards() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        stubs = Arrays.<StubUserDAO>asList(new StubUserDAO(), blockingShard(started, cancelled),
+            new StubUserDAO());
+        dao = new StubShardedUserDAO(stubs);
+        ShardedUserDAO.GatherIterator it = dao.iterateByMinimalAge(18);
+        assertTrue(it.hasNext());
+        it.next();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        it.close();
+        assertFalse(it.hasNext());
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInMemoryShards() throws SQLException {
+        List<InMemoryUserDatabase> databases = Arrays.asList(new InMemoryUserDatabase("shard0"),
+            new InMemoryUserDatabase("shard1"), new InMemoryUserDatabase("shard2"));
+        try {
+            List<EntityManagerFactory> shards = new ArrayList<EntityManagerFactory>();
+            for (InMemoryUserDatabase database : databases) {
+                shards.add(database.getEntityManagerFactory());
+            }
+            ShardedUserDAO sharded = new ShardedUserDAO(shards, executor);
+            String[][] users = { {"jdoe", "doe", "john"}, {"smith", "smith", "jack"}, {"jane", "doe", "jane"}};
+            int age = 17;
+            for (String[] user : users) {
+                databases.get(sharded.shardOf(user[1], user[2])).insert(user[0], user[1], user[2], age++);
+            }
+            // a user stored on another shard than its own can't be found by name
+            int misplaced = (sharded.shardOf("lee", "ann") + 1) % shards.size();
+            databases.get(misplaced).insert("alee", "lee", "ann", 40);
+
+            ReflectionAssert.assertPropertyLenientEquals("username", "jdoe", sharded.findByName("doe", "john"));
+            ReflectionAssert.assertPropertyLenientEquals("username", "jane", sharded.findByName("doe", "jane"));
+            assertEquals(1, sharded.getShardMetrics(sharded.shardOf("doe", "john")).getMethod("findByName")
+                .getCalls());
+            try {
+                sharded.findByName("lee", "ann");
+                fail("User found on another shard");
+            } catch (NoResultException e) {
+                // expected
+            }
+            ReflectionAssert.assertPropertyLenientEquals("username", Arrays.asList("smith", "jane", "alee"),
+                sharded.findByMinimalAge(18));
+            for (int i = 0; i < shards.size(); i++) {
+                assertEquals(1, sharded.getShardMetrics(i).getMethod("findByMinimalAge").getCalls());
+            }
+        } finally {
+            for (InMemoryUserDatabase database : databases) {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * A shard that counts down the first latch when called and answers only when interrupted, counting down
+     * the second latch then.
+     */
+    private static StubUserDAO blockingShard(final CountDownLatch started, final CountDownLatch cancelled) {
+        return new StubUserDAO() {
+            @Override
+            public List<User> findByMinimalAge(final int minimumAge) {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                }
+                return Arrays.asList(user);
+            }
+        };
+    }
+
+    /**
+     * Runs every call of a shard on the stub of that shard, with the entity managers of the stub factories.
+     */
+    private final class StubShardedUserDAO extends ShardedUserDAO {
+
+        private final List<StubUserDAO> shardDaos;
+
+        StubShardedUserDAO(final List<StubUserDAO> shardDaos) {
+            super(factoriesOf(factories), executor);
+            this.shardDaos = shardDaos;
+        }
+
+        @Override
+        protected UserDAO createDao(final int shard, final EntityManager entityManager) {
+            assertTrue(factories.get(shard).created.contains(entityManager));
+            return shardDaos.get(shard);
+        }
+    }
+
+    private static List<EntityManagerFactory> factoriesOf(final List<StubEntityManagerFactory> stubFactories) {
+        List<EntityManagerFactory> result = new ArrayList<EntityManagerFactory>();
+        for (StubEntityManagerFactory stub : stubFactories) {
+            result.add(stub.factory);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.example.model.User;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        final SingleFlight<String, Object> singleFlight = new SingleFlight<String, Object>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final Object result = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+
+                    public Object call() {
+                        return singleFlight.execute("key", new Callable<Object>() {
+
+                            public Object call() throws InterruptedException {
+                                executions.incrementAndGet();
+                                release.await();
+                                return result;
+                            }
+                        });
+                    }
+                }));
+            }
+            while (singleFlight.getSavedCount() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> future : futures) {
+                assertSame(result, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void testExceptionIsRethrownAndNotRemembered() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+        try {
+            singleFlight.execute("key", new Callable<String>() {
+
+                public String call() {
+                    throw new IllegalArgumentException("boom");
+                }
+            });
+            fail("Expected the exception of the call");
+        } catch (IllegalArgumentException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals("ok", singleFlight.execute("key", new Callable<String>() {
+
+            public String call() {
+                return "ok";
+            }
+        }));
+        assertEquals(0, singleFlight.getSavedCount());
+    }
+
+    @Test
+    public void testConcurrentFindByNameRunsOneQuery() throws Exception {
+        final SingleFlight<List<Object>, User> singleFlight = new SingleFlight<List<Object>, User>();
+        final StubEntityManagerFactory factory = new StubEntityManagerFactory();
+        final CountDownLatch release = new CountDownLatch(1);
+        final User user = new User();
+        factory.results = new Callable<List<?>>() {
+
+            public List<?> call() throws InterruptedException {
+                release.await();
+                return Arrays.asList(user);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<User>> futures = new ArrayList<Future<User>>();
+            for (int i = 0; i < 4; i++) {
+                final UserDAO dao = new UserDAO();
+                dao.setEntityManager(factory.factory.createEntityManager());
+                dao.setReadOnly(true);
+                dao.setDetachResults(true);
+                dao.setSingleFlight(singleFlight);
+                futures.add(executor.submit(new Callable<User>() {
+
+                    public User call() {
+                        return dao.findByName("doe", "john");
+                    }
+                }));
+            }
+            while (singleFlight.getSavedCount() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<User> future : futures) {
+                assertSame(user, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, factory.queries.get());
+        assertTrue(factory.detached.contains(user));
+    }
+
+    @Test
+    public void testManagedResultsAreNotCoalesced() {
+        SingleFlight<List<Object>, User> singleFlight = new SingleFlight<List<Object>, User>();
+        StubEntityManagerFactory factory = new StubEntityManagerFactory();
+        final User user = new User();
+        factory.results = new Callable<List<?>>() {
+
+            public List<?> call() {
+                return Arrays.asList(user);
+            }
+        };
+        UserDAO dao = new UserDAO();
+        dao.setEntityManager(factory.factory.createEntityManager());
+        dao.setReadOnly(true);
+        dao.setSingleFlight(singleFlight);
+        dao.findByName("doe", "john");
+        dao.findByName("doe", "john");
+        assertEquals(2, factory.queries.get());
+        assertEquals(0, singleFlight.getSavedCount());
+        assertTrue(factory.detached.isEmpty());
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.example.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+
+/**
+ * The Class StubEntityManagerFactory. {@link EntityManagerFactory} without a database for the tests of the DAOs
+ * that open an {@link EntityManager} per call: it records every entity manager it creates and every one that is
+ * closed. Their queries ignore hints and parameters and answer every result list from {@link #results}; the
+ * tests of the wrapping DAOs pair the entity managers with a {@link StubUserDAO} instead.
+ */
+class StubEntityManagerFactory {
+
+    /** The entity managers created, in order. */
+    final List<EntityManager> created = new CopyOnWriteArrayList<EntityManager>();
+
+    /** The entity managers closed, in order. */
+    final List<EntityManager> closed = new CopyOnWriteArrayList<EntityManager>();
+
+    /** The entities detached by any of the entity managers. */
+    final List<Object> detached = new CopyOnWriteArrayList<Object>();
+
+    /** The number of result lists queried. */
+    final AtomicInteger queries = new AtomicInteger();
+
+    /** The result list of every query, empty by default. */
+    volatile Callable<List<?>> results = new Callable<List<?>>() {
+        public List<?> call() {
+            return Collections.emptyList();
+        }
+    };
+
+    /** The factory. */
+    final EntityManagerFactory factory = (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {EntityManagerFactory.class}, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("createEntityManager".equals(method.getName())) {
+                    EntityManager entityManager = createEntityManager();
+                    created.add(entityManager);
+                    return entityManager;
+                }
+                return objectMethod(proxy, method, args);
+            }
+        });
+
+    private EntityManager createEntityManager() {
+        return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {EntityManager.class}, new InvocationHandler() {
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    if ("close".equals(method.getName())) {
+                        closed.add((EntityManager) proxy);
+                        return null;
+                    }
+                    if ("isOpen".equals(method.getName())) {
+                        return Boolean.valueOf(!closed.contains(proxy));
+                    }
+                    if ("detach".equals(method.getName())) {
+                        detached.add(args[0]);
+                        return null;
+                    }
+                    if (method.getReturnType() == Query.class) {
+                        return createQuery();
+                    }
+                    return objectMethod(proxy, method, args);
+                }
+            });
+    }
+
+    private Query createQuery() {
+        return (Query) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Query.class},
+            new InvocationHandler() {
+                public Object invoke(final Object proxy, final Method method, final Object[] args)
+                    throws Exception {
+                    if ("getResultList".equals(method.getName())) {
+                        queries.incrementAndGet();
+                        return results.call();
+                    }
+                    if (method.getReturnType() == Query.class) {
+                        return proxy;
+                    }
+                    return objectMethod(proxy, method, args);
+                }
+            });
+    }
+
+    private static Object objectMethod(final Object proxy, final Method method, final Object[] args) {
+        if ("equals".equals(method.getName())) {
+            return Boolean.valueOf(proxy == args[0]);
+        }
+        if ("hashCode".equals(method.getName())) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+        }
+        if ("toString".equals(method.getName())) {
+            return "Stub" + proxy.getClass().getInterfaces()[0].getSimpleName() + "@"
+                + Integer.toHexString(System.identityHashCode(proxy));
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+
+}
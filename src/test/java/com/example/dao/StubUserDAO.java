@@ -0,0 +1,48 @@
+package com.example.dao;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.model.User;
+
+/**
+ * The Class StubUserDAO. {@link UserDAO} without a database for the tests of the DAOs that wrap it: every read
+ * returns the same user and is counted, writes do nothing.
+ */
+class StubUserDAO extends UserDAO {
+
+    /** The user returned by the reads. */
+    final User user = new User();
+
+    /** The number of by-name reads. */
+    final AtomicInteger reads = new AtomicInteger();
+
+    @Override
+    public User findByName(final String name, final String firstName) {
+        reads.incrementAndGet();
+        return user;
+    }
+
+    @Override
+    public Optional<User> findOptionalByName(final String name, final String firstName) {
+        return Optional.of(findByName(name, firstName));
+    }
+
+    @Override
+    public List<User> findByMinimalAge(final int minimumAge) {
+        return Arrays.asList(user);
+    }
+
+    @Override
+    public WriteStats saveAll(final Iterable<User> users) {
+        return new WriteStats(0, 0);
+    }
+
+    @Override
+    public WriteStats upsertAll(final Iterable<User> users) {
+        return new WriteStats(0, 0);
+    }
+
+}
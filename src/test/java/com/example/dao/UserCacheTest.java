@@ -0,0 +1,81 @@
+package com.example.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.example.model.User;
+
+public class UserCacheTest {
+
+    private long time;
+
+    private UserCache cache;
+
+    @Before
+    public void init() {
+        cache = new UserCache(2, 10, TimeUnit.NANOSECONDS) {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        User user = new User();
+        assertNull(cache.get(new NameKey("doe", "john")));
+        cache.put(new NameKey("doe", "john"), user);
+        assertSame(user, cache.get(new NameKey("doe", "john")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testContainsDoesNotCount() {
+        cache.put(new NameKey("doe", "john"), new User());
+        assertTrue(cache.contains(new NameKey("doe", "john")));
+        assertFalse(cache.contains(new NameKey("smith", "jack")));
+        time = 10;
+        assertFalse(cache.contains(new NameKey("doe", "john")));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        User john = new User();
+        cache.put(new NameKey("doe", "john"), john);
+        cache.put(new NameKey("smith", "jack"), new User());
+        cache.get(new NameKey("doe", "john"));
+        cache.put(new NameKey("doe", "jane"), new User());
+        assertSame(john, cache.get(new NameKey("doe", "john")));
+        assertNull(cache.get(new NameKey("smith", "jack")));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsDropped() {
+        cache.put(new NameKey("doe", "john"), new User());
+        time = 10;
+        assertNull(cache.get(new NameKey("doe", "john")));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put(new NameKey("doe", "john"), new User());
+        cache.invalidate(new NameKey("doe", "john"));
+        assertNull(cache.get(new NameKey("doe", "john")));
+        assertEquals(0, cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.dao;
+
+
+import com.example.util.ClassDataSet;
+import com.example.util.DirtiesFixture;
+import com.example.util.GeneralDaoTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.unitils.database.annotations.Transactional;
+import org.unitils.database.util.TransactionMode;
+import org.unitils.inject.annotation.TestedObject;
+import org.unitils.orm.jpa.JpaUnitils;
+import org.unitils.orm.jpa.annotation.JpaEntityManagerFactory;
+
+import java.sql.Connection;
+
+/**
+ * The tests run in name order: every test checks that the changes of the previous one are gone, either rolled back
+ * by unitils or, for the committing {@link DirtiesFixture} test, restored from the snapshot of the class dataset.
+ */
+@JpaEntityManagerFactory(persistenceUnit = "userDb", configFile = "META-INF/persistence-test.xml")
+@ClassDataSet("UserDAOTest.xml")
+@Transactional(TransactionMode.ROLLBACK)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class UserDAOClassFixtureTest extends GeneralDaoTest {
+
+    @TestedObject
+    private UserDAO userDao;
+
+    @Before
+    @Override
+    public void init() {
+        userDao = new UserDAO();
+        JpaUnitils.injectEntityManagerInto(userDao);
+    }
+
+    @Test
+    public void test1DeleteIsRolledBack() {
+        Assert.assertEquals(2, userDao.countByMinimalAge(0));
+        JpaUnitils.getEntityManager().createQuery("delete from User u where u.username = 'jdoe'").executeUpdate();
+        Assert.assertEquals(1, userDao.countByMinimalAge(0));
+    }
+
+    @Test
+    @DirtiesFixture
+    public void test2CommittedDeleteDirtiesFixture() throws Exception {
+        Assert.assertEquals(2, userDao.countByMinimalAge(0));
+        Connection connection = openConnection();
+        try {
+            connection.setAutoCommit(true);
+            connection.createStatement().executeUpdate("delete from user where username = 'smith'");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void test3SnapshotIsRestored() {
+        Assert.assertEquals(2, userDao.countByMinimalAge(0));
+        Assert.assertTrue(userDao.existsByName("smith", "jack"));
+    }
+}
\ No newline at end of file
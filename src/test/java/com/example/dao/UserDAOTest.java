@@ -1,8 +1,10 @@
 package com.example.dao;
 
 
+import com.example.dao.metrics.DaoMetrics;
 import com.example.model.User;
 import com.example.util.GeneralDaoTest;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.unitils.UnitilsJUnit4;
@@ -12,8 +14,15 @@ import org.unitils.orm.jpa.JpaUnitils;
 import org.unitils.orm.jpa.annotation.JpaEntityManagerFactory;
 import org.unitils.reflectionassert.ReflectionAssert;
 
+import javax.persistence.NoResultException;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @JpaEntityManagerFactory(persistenceUnit = "userDb", configFile = "META-INF/persistence-test.xml")
 @DataSet
@@ -40,4 +49,145 @@ public class UserDAOTest extends GeneralDaoTest {
         List<User> result = userDao.findByMinimalAge(18);
         ReflectionAssert.assertPropertyLenientEquals("firstName", Arrays.asList("jack"), result);
     }
+
+    @Test
+    public void testFindByNameCached() {
+        userDao.setReadOnly(true);
+        userDao.setDetachResults(true);
+        userDao.setCache(new UserCache(10, 1, TimeUnit.MINUTES));
+        User first = userDao.findByName("doe", "john");
+        User second = userDao.findByName("doe", "john");
+        Assert.assertSame(first, second);
+        Assert.assertFalse(JpaUnitils.getEntityManager().contains(first));
+        Assert.assertEquals(1, userDao.getCache().getHitCount());
+    }
+
+    @Test
+    public void testManagedResultsAreNotCached() {
+        userDao.setCache(new UserCache(10, 1, TimeUnit.MINUTES));
+        userDao.findByName("doe", "john");
+        userDao.findByName("doe", "john");
+        Assert.assertEquals(0, userDao.getCache().size());
+        Assert.assertEquals(0, userDao.getCache().getMissCount());
+    }
+
+    @Test
+    public void testStreamByMinimalAge() {
+        List<User> result;
+        Stream<User> stream = userDao.streamByMinimalAge(18);
+        try {
+            result = stream.collect(Collectors.<User>toList());
+        } finally {
+            stream.close();
+        }
+        ReflectionAssert.assertPropertyLenientEquals("firstName", Arrays.asList("jack"), result);
+    }
+
+    @Test
+    public void testIterateByMinimalAge() {
+        List<User> result = new ArrayList<User>();
+        UserCursor cursor = userDao.iterateByMinimalAge(18);
+        try {
+            while (cursor.hasNext()) {
+                result.add(cursor.next());
+            }
+        } finally {
+            cursor.close();
+        }
+        ReflectionAssert.assertPropertyLenientEquals("firstName", Arrays.asList("jack"), result);
+    }
+
+    @Test
+    public void testFindByMinimalAgePaged() {
+        Page<User> first = userDao.findByMinimalAge(0, null, 1);
+        ReflectionAssert.assertPropertyLenientEquals("username", Arrays.asList("jdoe"), first.getContent());
+        Page<User> second = userDao.findByMinimalAge(0, first.getNextKey(), 1);
+        ReflectionAssert.assertPropertyLenientEquals("username", Arrays.asList("smith"), second.getContent());
+        Assert.assertFalse(second.hasNext());
+    }
+
+    @Test
+    public void testFindByNames() {
+        Map<NameKey, User> result = userDao.findByNames(Arrays.asList(new NameKey("doe", "john"),
+            new NameKey("smith", "jack"), new NameKey("doe", "jane")));
+        Assert.assertEquals(2, result.size());
+        ReflectionAssert.assertPropertyLenientEquals("username", "jdoe", result.get(new NameKey("doe", "john")));
+        ReflectionAssert.assertPropertyLenientEquals("username", "smith", result.get(new NameKey("smith", "jack")));
+    }
+
+    @Test
+    public void testFindUsernamesByMinimalAge() {
+        Assert.assertEquals(Arrays.asList("smith"), userDao.findUsernamesByMinimalAge(18));
+    }
+
+    @Test
+    public void testFindUsernameAgesByMinimalAge() {
+        Assert.assertEquals(Arrays.asList(new UsernameAge("smith", 20)), userDao.findUsernameAgesByMinimalAge(18));
+    }
+
+    @Test
+    public void testFindByMinimalAgeReadOnlyDetached() {
+        userDao.setReadOnly(true);
+        userDao.setDetachResults(true);
+        List<User> result = userDao.findByMinimalAge(18);
+        ReflectionAssert.assertPropertyLenientEquals("firstName", Arrays.asList("jack"), result);
+        Assert.assertFalse(JpaUnitils.getEntityManager().contains(result.get(0)));
+    }
+
+    @Test
+    public void testExistsByName() {
+        Assert.assertTrue(userDao.existsByName("doe", "john"));
+        Assert.assertFalse(userDao.existsByName("doe", "jane"));
+    }
+
+    @Test
+    public void testCountByMinimalAge() {
+        Assert.assertEquals(1, userDao.countByMinimalAge(18));
+        Assert.assertEquals(2, userDao.countByMinimalAge(0));
+    }
+
+    @Test
+    public void testReuseQueries() {
+        userDao.setReuseQueries(true);
+        userDao.validateQueries();
+        ReflectionAssert.assertPropertyLenientEquals("username", "jdoe", userDao.findByName("doe", "john"));
+        ReflectionAssert.assertPropertyLenientEquals("username", "smith", userDao.findByName("smith", "jack"));
+    }
+
+    @Test
+    public void testFindOptionalByNameRemembersMiss() {
+        userDao.setNegativeCache(new NegativeCache(10, 1, TimeUnit.MINUTES));
+        Assert.assertFalse(userDao.findOptionalByName("doe", "jane").isPresent());
+        Assert.assertFalse(userDao.findOptionalByName("doe", "jane").isPresent());
+        Assert.assertEquals(1, userDao.getNegativeCache().getHitCount());
+        ReflectionAssert.assertPropertyLenientEquals("username", "jdoe", userDao.findOptionalByName("doe", "john").get());
+    }
+
+    @Test(expected = NoResultException.class)
+    public void testFindByNameMissing() {
+        userDao.findByName("doe", "jane");
+    }
+
+    @Test
+    public void testFindByMinimalAgeIndexed() {
+        userDao.setAgeIndex(new AgeIndex());
+        userDao.rebuildAgeIndex();
+        Assert.assertEquals(2, userDao.getAgeIndex().size());
+        List<User> result = userDao.findByMinimalAge(18);
+        ReflectionAssert.assertPropertyLenientEquals("firstName", Arrays.asList("jack"), result);
+    }
+
+    @Test
+    public void testUpsertAllWritesBatchesAndClears() {
+        userDao.setWriteBatchSize(1);
+        userDao.setMetrics(new DaoMetrics("userDao"));
+        List<User> users = userDao.findByMinimalAge(0);
+        WriteStats stats = userDao.upsertAll(users);
+        Assert.assertEquals(2, stats.getRows());
+        Assert.assertEquals(2, userDao.getMetrics().getMethod("upsertAll").getRows());
+        Assert.assertFalse(JpaUnitils.getEntityManager().contains(users.get(0)));
+        Assert.assertFalse(JpaUnitils.getEntityManager().contains(users.get(1)));
+        Assert.assertEquals(2, userDao.countByMinimalAge(0));
+        Assert.assertEquals(0, userDao.saveAll(new ArrayList<User>()).getRows());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.dao.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class JmxMetricsExporterTest {
+
+    @Test
+    public void testExportAndUnexport() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        DaoMetrics metrics = new DaoMetrics("users");
+        metrics.record("findByName", 1000, 1);
+        JmxMetricsExporter exporter = new JmxMetricsExporter(server);
+        exporter.export(metrics);
+
+        ObjectName findByName = new ObjectName("com.example.dao:type=\"users\",method=findByName");
+        assertTrue(server.isRegistered(findByName));
+        metrics.record("findByName", 1000, 2);
+        assertEquals(Long.valueOf(2), server.getAttribute(findByName, "Calls"));
+        assertEquals(Long.valueOf(3), server.getAttribute(findByName, "Rows"));
+
+        // exporting again registers only the methods called since
+        metrics.record("existsByName", 1000, 0);
+        exporter.export(metrics);
+        ObjectName existsByName = new ObjectName("com.example.dao:type=\"users\",method=existsByName");
+        assertTrue(server.isRegistered(existsByName));
+
+        exporter.unexport(metrics);
+        assertFalse(server.isRegistered(findByName));
+        assertFalse(server.isRegistered(existsByName));
+        exporter.unexport(metrics);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.example.dao.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() {
+        for (int i = 0; i < 900; i++) {
+            long highest = LatencyHistogram.highestValueOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(highest));
+            assertEquals(i + 1, LatencyHistogram.indexOf(highest + 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertWithinPrecision(500000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990000, histogram.getValueAtPercentile(99));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+
+    private static void assertWithinPrecision(final long expected, final long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+            actual >= expected && actual <= expected + expected / 16);
+    }
+
+}
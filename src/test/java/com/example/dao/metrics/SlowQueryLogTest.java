@@ -0,0 +1,37 @@
+package com.example.dao.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SlowQueryLogTest {
+
+    @Test
+    public void testOnlySlowQueriesAreLogged() {
+        SlowQueryLog log = new SlowQueryLog(10, TimeUnit.MILLISECONDS, 4);
+        log.log("User.findByMinimalAge", "minAge=18", 1, TimeUnit.MILLISECONDS.toNanos(9));
+        log.log("User.findByMinimalAge", "minAge=0", 2, TimeUnit.MILLISECONDS.toNanos(10));
+        List<SlowQuery> entries = log.getEntries();
+        assertEquals(1, entries.size());
+        assertEquals("minAge=0", entries.get(0).getParameters());
+        assertTrue(entries.get(0).toString().contains("User.findByMinimalAge"));
+    }
+
+    @Test
+    public void testOldestEntriesAreOverwritten() {
+        SlowQueryLog log = new SlowQueryLog(0, TimeUnit.MILLISECONDS, 2);
+        for (int i = 0; i < 5; i++) {
+            log.log("User.findByName", "i=" + i, 1, 1);
+        }
+        List<SlowQuery> entries = log.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("i=3", entries.get(0).getParameters());
+        assertEquals("i=4", entries.get(1).getParameters());
+        assertEquals(5, log.getLoggedCount());
+    }
+
+}
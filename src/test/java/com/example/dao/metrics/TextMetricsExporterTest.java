@@ -0,0 +1,37 @@
+package com.example.dao.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TextMetricsExporterTest {
+
+    @Test
+    public void testOneLinePerMethod() {
+        DaoMetrics metrics = new DaoMetrics("users");
+        metrics.record("findByName", TimeUnit.MICROSECONDS.toNanos(100), 1);
+        metrics.record("findByName", TimeUnit.MICROSECONDS.toNanos(100), -1);
+        metrics.record("existsByName", TimeUnit.MICROSECONDS.toNanos(100), 0);
+        StringWriter out = new StringWriter();
+        new TextMetricsExporter(out).export(metrics);
+
+        String[] lines = out.toString().split("\r?\n");
+        assertEquals(4, lines.length);
+        assertEquals("users (latencies in us)", lines[0]);
+        assertArrayEquals(new String[] {"method", "calls", "errors", "rows", "p50", "p99", "p999", "max"},
+            lines[1].trim().split(" +"));
+        assertEquals(lines[1].length(), lines[2].length());
+        MethodMetrics existsByName = metrics.getMethod("existsByName");
+        assertArrayEquals(new String[] {"existsByName", "1", "0", "0", String.valueOf(existsByName.getP50Micros()),
+            String.valueOf(existsByName.getP99Micros()), String.valueOf(existsByName.getP999Micros()),
+            String.valueOf(existsByName.getMaxMicros())}, lines[2].split(" +"));
+        assertEquals("findByName", lines[3].substring(0, lines[3].indexOf(' ')));
+        assertArrayEquals(new String[] {"2", "1", "1"}, Arrays.copyOfRange(lines[3].split(" +"), 1, 4));
+    }
+
+}
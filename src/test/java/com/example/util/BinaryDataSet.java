@@ -0,0 +1,294 @@
+package com.example.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.xml.FlatXmlDataSet;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The Class BinaryDataSet. Compact binary form of a flat xml dataset, stored next to it with the extension '.dsb'.
+ * The values are stored column by column as length-prefixed UTF-8 strings (DbUnit converts them to the column
+ * types on insert, as it does for xml), so reading is a sequential scan without any xml parsing.
+ * 
+ * Layout: magic, version, table count, and per table: name, column names, row count and the values of each column.
+ * 
+ * The main method converts the flat xml datasets of directories at build time (see the profile binary-datasets).
+ * The binary file is read instead of the xml through unitils' DataSet too (see {@link CachingDataSetFactory}), so
+ * only datasets that read the same through {@link FlatXmlDataSet} as through unitils' parser are converted, see
+ * {@link #isConvertible(File)}; the others keep being parsed by unitils.
+ */
+public final class BinaryDataSet {
+
+    /** The extension of the binary datasets. */
+    public static final String EXTENSION = ".dsb";
+
+    private static final int MAGIC = 0x44534231;
+
+    private static final int VERSION = 2;
+
+    private static final int NULL = -1;
+
+    /**
+     * Instantiates a new binary data set.
+     */
+    private BinaryDataSet() {
+        super();
+    }
+
+    /**
+     * Converts the flat xml datasets (files with a 'dataset' root) in the given directories or files.
+     * 
+     * @param args the directories or files
+     * 
+     * @throws Exception the exception
+     */
+    public static void main(final String[] args) throws Exception {
+        for (String arg : args) {
+            convertAll(new File(arg));
+        }
+    }
+
+    /**
+     * Converts a flat xml dataset or the datasets in a directory tree.
+     * 
+     * @param file the file or directory
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DatabaseUnitException Signals that a dataset is invalid.
+     */
+    private static void convertAll(final File file) throws IOException, DatabaseUnitException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            for (File child : children) {
+                convertAll(child);
+            }
+        } else if (file.getName().endsWith(".xml") && FileUtils.readFileToString(file, "UTF-8").contains("<dataset")) {
+            if (isConvertible(file)) {
+                convert(file);
+            } else {
+                FileUtils.deleteQuietly(binaryFileOf(file));
+            }
+        }
+    }
+
+    /**
+     * Checks that a flat xml dataset has a single schema and, per table, the same attributes in every row.
+     * {@link FlatXmlDataSet} takes the columns of a table from its first row and doesn't know the 'schema:table'
+     * elements and the xmlns schema declarations of unitils, so any other dataset would read differently from
+     * its binary file.
+     * 
+     * @param xmlFile the flat xml file
+     * 
+     * @return true if the dataset can be converted
+     * 
+     * @throws IOException Signals that an I/O exception has occurred or that the xml is invalid.
+     */
+    public static boolean isConvertible(final File xmlFile) throws IOException {
+        final Map<String, Set<String>> columnsPerTable = new HashMap<String, Set<String>>();
+        final boolean[] convertible = {true};
+        DefaultHandler handler = new DefaultHandler() {
+
+            private int depth;
+
+            @Override
+            public void startElement(final String uri, final String localName, final String qName,
+                final Attributes attributes) {
+                Set<String> columns = new HashSet<String>();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    columns.add(attributes.getQName(i));
+                }
+                if (depth++ == 0) {
+                    for (String column : columns) {
+                        convertible[0] &= !column.startsWith("xmlns");
+                    }
+                    return;
+                }
+                Set<String> first = columnsPerTable.get(qName);
+                if (first == null) {
+                    columnsPerTable.put(qName, columns);
+                }
+                convertible[0] &= qName.indexOf(':') < 0 && (first == null || first.equals(columns));
+            }
+
+            @Override
+            public void endElement(final String uri, final String localName, final String qName) {
+                depth--;
+            }
+        };
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(xmlFile, handler);
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Error parsing " + xmlFile, e);
+        } catch (SAXException e) {
+            throw new IOException("Error parsing " + xmlFile, e);
+        }
+        return convertible[0];
+    }
+
+    /**
+     * Converts a flat xml dataset to its binary file, see {@link #isConvertible(File)} for the datasets that can
+     * be converted.
+     * 
+     * @param xmlFile the flat xml file
+     * 
+     * @return the binary file
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DatabaseUnitException Signals that the dataset is invalid.
+     */
+    public static File convert(final File xmlFile) throws IOException, DatabaseUnitException {
+        File binaryFile = binaryFileOf(xmlFile);
+        InputStream in = new FileInputStream(xmlFile);
+        OutputStream out = null;
+        try {
+            IDataSet dataSet = new FlatXmlDataSet(in);
+            out = new FileOutputStream(binaryFile);
+            write(dataSet, out);
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(out);
+        }
+        return binaryFile;
+    }
+
+    /**
+     * The binary file of a flat xml file.
+     * 
+     * @param xmlFile the flat xml file
+     * 
+     * @return the file with the extension replaced by {@link #EXTENSION}
+     */
+    public static File binaryFileOf(final File xmlFile) {
+        String name = xmlFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(xmlFile.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + EXTENSION);
+    }
+
+    /**
+     * Writes a dataset.
+     * 
+     * @param dataSet the dataset
+     * @param out the output stream (not closed)
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DataSetException Signals that the dataset can't be read.
+     */
+    public static void write(final IDataSet dataSet, final OutputStream out) throws IOException, DataSetException {
+        List<ITable> tables = new ArrayList<ITable>();
+        ITableIterator it = dataSet.iterator();
+        while (it.next()) {
+            tables.add(it.getTable());
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(tables.size());
+        for (ITable table : tables) {
+            Column[] columns = table.getTableMetaData().getColumns();
+            writeString(data, table.getTableMetaData().getTableName());
+            data.writeInt(columns.length);
+            for (Column column : columns) {
+                writeString(data, column.getColumnName());
+            }
+            int rows = table.getRowCount();
+            data.writeInt(rows);
+            for (Column column : columns) {
+                for (int row = 0; row < rows; row++) {
+                    Object value = table.getValue(row, column.getColumnName());
+                    writeString(data, value == null ? null : value.toString());
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a dataset.
+     * 
+     * @param in the input stream (not closed)
+     * 
+     * @return the dataset
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DataSetException Signals that the dataset is invalid.
+     */
+    public static IDataSet read(final InputStream in) throws IOException, DataSetException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not a binary dataset of version " + VERSION);
+        }
+        ITable[] tables = new ITable[data.readInt()];
+        for (int t = 0; t < tables.length; t++) {
+            String name = readString(data);
+            Column[] columns = new Column[data.readInt()];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new Column(readString(data), DataType.UNKNOWN);
+            }
+            int rows = data.readInt();
+            Object[][] values = new Object[rows][columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                for (int row = 0; row < rows; row++) {
+                    values[row][c] = readString(data);
+                }
+            }
+            DefaultTable table = new DefaultTable(name, columns);
+            for (Object[] row : values) {
+                table.addRow(row);
+            }
+            tables[t] = table;
+        }
+        return new DefaultDataSet(tables);
+    }
+
+    private static void writeString(final DataOutputStream data, final String value) throws IOException {
+        if (value == null) {
+            data.writeInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(final DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+}
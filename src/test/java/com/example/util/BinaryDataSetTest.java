@@ -0,0 +1,63 @@
+package com.example.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.Test;
+
+public class BinaryDataSetTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        DefaultTable users = new DefaultTable("user", new Column[] {new Column("username", DataType.UNKNOWN),
+            new Column("age", DataType.UNKNOWN)});
+        users.addRow(new Object[] {"jdoe", "17"});
+        users.addRow(new Object[] {"sm\u00eft\u0127", null});
+        DefaultTable empty = new DefaultTable("address", new Column[] {new Column("id", DataType.UNKNOWN)});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDataSet.write(new DefaultDataSet(new ITable[] {users, empty}), out);
+
+        IDataSet read = BinaryDataSet.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, read.getTableNames().length);
+        ITable user = read.getTable("user");
+        assertEquals(2, user.getRowCount());
+        assertEquals(2, user.getTableMetaData().getColumns().length);
+        assertEquals("jdoe", user.getValue(0, "username"));
+        assertEquals("17", user.getValue(0, "age"));
+        assertEquals("sm\u00eft\u0127", user.getValue(1, "username"));
+        assertNull(user.getValue(1, "age"));
+        assertEquals(0, read.getTable("address").getRowCount());
+    }
+
+    @Test
+    public void testOnlyDataSetsReadingLikeUnitilsAreConvertible() throws Exception {
+        assertTrue(BinaryDataSet.isConvertible(dataSet("<dataset><user username='jdoe' age='17'/>"
+            + "<user age='20' username='smith'/><address id='1'/></dataset>")));
+        assertFalse(BinaryDataSet.isConvertible(dataSet("<dataset><user username='jdoe'/>"
+            + "<user username='smith' age='20'/></dataset>")));
+        assertFalse(BinaryDataSet.isConvertible(dataSet("<dataset><other:user username='jdoe'/></dataset>")));
+        assertFalse(BinaryDataSet.isConvertible(dataSet("<dataset xmlns='other'><user username='jdoe'/></dataset>")));
+    }
+
+    private static File dataSet(final String xml) throws IOException {
+        File file = File.createTempFile("dataset", ".xml");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, xml, "UTF-8");
+        return file;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.example.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.dbunit.DatabaseUnitException;
+import org.unitils.core.UnitilsException;
+import org.unitils.dbunit.datasetfactory.DataSetFactory;
+import org.unitils.dbunit.datasetfactory.impl.MultiSchemaXmlDataSetFactory;
+import org.unitils.dbunit.util.MultiSchemaDataSet;
+
+/**
+ * The Class CachingDataSetFactory. DataSetFactory for unitils' DataSet that parses every dataset file once per JVM
+ * (see {@link DataSetCache}). A single file with an up-to-date {@link BinaryDataSet} is read from the binary file
+ * into the default schema, binary files are only written for datasets that read the same as through unitils (see
+ * {@link BinaryDataSet#isConvertible(File)}); other files are parsed by unitils' {@link MultiSchemaXmlDataSetFactory}.
+ * 
+ * Enable it in unitils.properties:
+ * DbUnitModule.DataSet.factory.default=com.example.util.CachingDataSetFactory
+ */
+public class CachingDataSetFactory implements DataSetFactory {
+
+    private final MultiSchemaXmlDataSetFactory xmlFactory = new MultiSchemaXmlDataSetFactory();
+
+    private String defaultSchemaName;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void init(final Properties configuration, final String defaultSchemaName) {
+        this.defaultSchemaName = defaultSchemaName;
+        xmlFactory.init(configuration, defaultSchemaName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public MultiSchemaDataSet createDataSet(final File... dataSetFiles) {
+        File binaryFile = dataSetFiles.length == 1 ? BinaryDataSet.binaryFileOf(dataSetFiles[0]) : null;
+        String key = defaultSchemaName + ":"
+            + (binaryFile == null ? DataSetCache.keyOf(dataSetFiles) : DataSetCache.keyOf(dataSetFiles[0], binaryFile));
+        MultiSchemaDataSet dataSet = (MultiSchemaDataSet) DataSetCache.get(key);
+        if (dataSet != null) {
+            return dataSet;
+        }
+        if (binaryFile != null && binaryFile.isFile() && binaryFile.lastModified() >= dataSetFiles[0].lastModified()) {
+            dataSet = new MultiSchemaDataSet();
+            try {
+                dataSet.setDataSetForSchema(defaultSchemaName, DataSetCache.getDataSet(dataSetFiles[0]));
+            } catch (IOException e) {
+                throw new UnitilsException("Error reading dataset " + binaryFile, e);
+            } catch (DatabaseUnitException e) {
+                throw new UnitilsException("Error reading dataset " + binaryFile, e);
+            }
+        } else {
+            dataSet = xmlFactory.createDataSet(dataSetFiles);
+        }
+        DataSetCache.put(key, dataSet);
+        return dataSet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDataSetFileExtension() {
+        return xmlFactory.getDataSetFileExtension();
+    }
+
+}
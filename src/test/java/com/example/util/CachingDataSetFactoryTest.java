@@ -0,0 +1,80 @@
+package com.example.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.dbunit.datasetfactory.impl.MultiSchemaXmlDataSetFactory;
+import org.unitils.dbunit.util.MultiSchemaDataSet;
+
+public class CachingDataSetFactoryTest {
+
+    private static final String SCHEMA = "PUBLIC";
+
+    private CachingDataSetFactory factory;
+
+    private MultiSchemaXmlDataSetFactory xmlFactory;
+
+    @Before
+    public void init() {
+        factory = new CachingDataSetFactory();
+        factory.init(new Properties(), SCHEMA);
+        xmlFactory = new MultiSchemaXmlDataSetFactory();
+        xmlFactory.init(new Properties(), SCHEMA);
+    }
+
+    @Test
+    public void testSameFileIsParsedOnce() throws Exception {
+        File file = dataSet("<dataset><user username='jdoe' age='17'/></dataset>");
+        assertSame(factory.createDataSet(file), factory.createDataSet(file));
+    }
+
+    @Test
+    public void testBinaryFileReadsLikeUnitils() throws Exception {
+        File file = dataSet("<dataset><user username='jdoe' age='17' firstname='john'/>"
+            + "<user age='20' firstname='jack' username='smith'/><address id='1'/></dataset>");
+        MultiSchemaDataSet parsed = factory.createDataSet(file);
+        File binaryFile = BinaryDataSet.convert(file);
+        binaryFile.deleteOnExit();
+        binaryFile.setLastModified(file.lastModified() + 2000);
+        MultiSchemaDataSet binary = factory.createDataSet(file);
+        assertNotSame(parsed, binary);
+        assertSameRows(xmlFactory.createDataSet(file).getDataSetForSchema(SCHEMA), binary.getDataSetForSchema(SCHEMA));
+    }
+
+    private static void assertSameRows(final IDataSet expected, final IDataSet actual) throws Exception {
+        assertArrayEquals(expected.getTableNames(), actual.getTableNames());
+        for (String tableName : expected.getTableNames()) {
+            ITable expectedTable = expected.getTable(tableName);
+            ITable actualTable = actual.getTable(tableName);
+            Column[] columns = expectedTable.getTableMetaData().getColumns();
+            assertEquals(columns.length, actualTable.getTableMetaData().getColumns().length);
+            assertEquals(expectedTable.getRowCount(), actualTable.getRowCount());
+            for (int row = 0; row < expectedTable.getRowCount(); row++) {
+                for (Column column : columns) {
+                    assertEquals(expectedTable.getValue(row, column.getColumnName()),
+                        actualTable.getValue(row, column.getColumnName()));
+                }
+            }
+        }
+    }
+
+    private static File dataSet(final String xml) throws IOException {
+        File file = File.createTempFile("dataset", ".xml");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, xml, "UTF-8");
+        return file;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.example.util;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Loads a flat xml dataset once for all tests of a {@link GeneralDaoTest} class instead of before every test like
+ * unitils' DataSet does. A class with the same dataset as the previous class doesn't load it at all.
+ * 
+ * The tests must not commit: run them in a transaction that is rolled back, with unitils'
+ * {@code @Transactional(TransactionMode.ROLLBACK)} on the class or DatabaseModule.Transactional.value.default=rollback
+ * in unitils.properties. A test that commits is annotated with {@link DirtiesFixture}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface ClassDataSet {
+
+    /**
+     * The dataset resource, relative to the package of the test class || empty for '&lt;SimpleClassName&gt;.xml'.
+     */
+    String value() default "";
+
+}
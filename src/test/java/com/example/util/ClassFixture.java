@@ -0,0 +1,194 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.unitils.database.annotations.Transactional;
+import org.unitils.database.util.TransactionMode;
+
+/**
+ * The Class ClassFixture. Keeps track of the dataset loaded by {@link ClassDataSet} (one per JVM, as the test
+ * database is) and of the snapshot of the database taken right after loading it.
+ * 
+ * The snapshot holds every table of the database, so restoring it also empties tables a committing test wrote to.
+ * (HSQLDB has no checkpoint/restore for in-memory databases, so the snapshot is kept as a cached DbUnit dataset.)
+ */
+final class ClassFixture {
+
+    private static final Logger LOG = Logger.getLogger(ClassFixture.class);
+
+    /** The unitils property of the transaction mode of classes without Transactional. */
+    private static final String DEFAULT_TRANSACTION_MODE = "DatabaseModule.Transactional.value.default";
+
+    private static String loadedResource;
+
+    private static IDataSet snapshot;
+
+    private static boolean dirty;
+
+    /**
+     * Instantiates a new class fixture.
+     */
+    private ClassFixture() {
+        super();
+    }
+
+    /**
+     * Prepares the database for a test of a class: loads its {@link ClassDataSet} if another dataset (or none) is
+     * loaded, or restores the snapshot if the previous test dirtied it.
+     * 
+     * @param testClass the test class
+     * @param connection the connection to the test database
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SQLException Signals that an SQL exception has occurred.
+     */
+    static synchronized void prepare(final Class<?> testClass, final Connection connection) throws IOException,
+        SQLException {
+        ClassDataSet annotation = testClass.getAnnotation(ClassDataSet.class);
+        if (annotation == null) {
+            loadedResource = null;
+            return;
+        }
+        String resource = resourceOf(testClass, annotation);
+        try {
+            IDatabaseConnection dbConnection = new DatabaseConnection(connection);
+            dbConnection.getConfig().setFeature(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, true);
+            if (!resource.equals(loadedResource)) {
+                LOG.info("Load class dataset " + resource);
+                loadedResource = null;
+                DatabaseOperation.CLEAN_INSERT.execute(dbConnection, readDataSet(testClass, resource));
+                snapshot = new CachedDataSet(dbConnection.createDataSet());
+                loadedResource = resource;
+            } else if (dirty) {
+                LOG.info("Restore snapshot of " + resource);
+                DatabaseOperation.CLEAN_INSERT.execute(dbConnection, snapshot);
+            }
+            dirty = false;
+        } catch (DatabaseUnitException e) {
+            loadedResource = null;
+            throw new IOException("Error loading dataset " + resource + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether the database needs to be prepared, so the connection is only opened when needed.
+     * 
+     * @param testClass the test class
+     * 
+     * @return true, if {@link #prepare(Class, Connection)} changes the database
+     */
+    static synchronized boolean needsPrepare(final Class<?> testClass) {
+        ClassDataSet annotation = testClass.getAnnotation(ClassDataSet.class);
+        if (annotation == null) {
+            // unitils' DataSet (or the test itself) changes the database
+            loadedResource = null;
+            return false;
+        }
+        return dirty || !resourceOf(testClass, annotation).equals(loadedResource);
+    }
+
+    /**
+     * Checks that a test of a {@link ClassDataSet} class is rolled back, since the dataset isn't loaded again
+     * before every test: unitils' Transactional(ROLLBACK) on the test method, else on the class (or a superclass),
+     * else rollback as unitils' default transaction mode. A {@link DirtiesFixture} test may commit.
+     * 
+     * @param testClass the test class
+     * @param testMethod the test method || null if unknown
+     * @param configuration the unitils configuration
+     * 
+     * @throws IllegalStateException if the test would commit or run without transaction
+     */
+    static void checkRollback(final Class<?> testClass, final Method testMethod, final Properties configuration) {
+        if (testMethod != null && testMethod.isAnnotationPresent(DirtiesFixture.class)) {
+            return;
+        }
+        TransactionMode mode = TransactionMode.DEFAULT;
+        Transactional methodTransactional = testMethod == null ? null : testMethod.getAnnotation(Transactional.class);
+        if (methodTransactional != null) {
+            mode = methodTransactional.value();
+        }
+        for (Class<?> cl = testClass; cl != null && mode == TransactionMode.DEFAULT; cl = cl.getSuperclass()) {
+            Transactional transactional = cl.getAnnotation(Transactional.class);
+            if (transactional != null) {
+                mode = transactional.value();
+            }
+        }
+        if (mode == TransactionMode.DEFAULT) {
+            String value = configuration.getProperty(DEFAULT_TRANSACTION_MODE);
+            mode = value == null ? TransactionMode.COMMIT : TransactionMode.valueOf(value.trim().toUpperCase());
+        }
+        if (mode != TransactionMode.ROLLBACK) {
+            String test = testClass.getName() + (testMethod == null ? "" : "." + testMethod.getName());
+            throw new IllegalStateException(test + " uses ClassDataSet but "
+                + (mode == TransactionMode.COMMIT ? "commits" : "runs without transaction")
+                + ": annotate it with @Transactional(TransactionMode.ROLLBACK) or @DirtiesFixture, or set "
+                + DEFAULT_TRANSACTION_MODE + "=rollback");
+        }
+    }
+
+    /**
+     * Forgets the loaded dataset, after the schema was recreated.
+     */
+    static synchronized void reset() {
+        loadedResource = null;
+        snapshot = null;
+        dirty = false;
+    }
+
+    /**
+     * Marks the database as changed by a committing test.
+     */
+    static synchronized void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * The dataset resource of a test class.
+     * 
+     * @param testClass the test class
+     * @param annotation the annotation
+     * 
+     * @return the absolute resource name
+     */
+    private static String resourceOf(final Class<?> testClass, final ClassDataSet annotation) {
+        String name = annotation.value().length() == 0 ? testClass.getSimpleName() + ".xml" : annotation.value();
+        if (name.startsWith("/")) {
+            return name;
+        }
+        return "/" + testClass.getPackage().getName().replace('.', '/') + "/" + name;
+    }
+
+    /**
+     * Reads a flat xml dataset (or its binary form) through the {@link DataSetCache}.
+     * 
+     * @param testClass the test class
+     * @param resource the resource
+     * 
+     * @return the dataset
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DatabaseUnitException Signals that the dataset is invalid.
+     */
+    private static IDataSet readDataSet(final Class<?> testClass, final String resource) throws IOException,
+        DatabaseUnitException {
+        URL url = testClass.getResource(resource);
+        if (url == null) {
+            throw new IOException("Dataset not found: " + resource);
+        }
+        return DataSetCache.getDataSet(url);
+    }
+
+}
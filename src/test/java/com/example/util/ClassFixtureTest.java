@@ -0,0 +1,97 @@
+package com.example.util;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.unitils.database.annotations.Transactional;
+import org.unitils.database.util.TransactionMode;
+
+public class ClassFixtureTest {
+
+    @ClassDataSet
+    @Transactional(TransactionMode.ROLLBACK)
+    public static class RollbackFixture {
+
+        public void test() {
+        }
+
+        @Transactional(TransactionMode.COMMIT)
+        public void testCommit() {
+        }
+
+        @Transactional(TransactionMode.DISABLED)
+        public void testWithoutTransaction() {
+        }
+
+        @DirtiesFixture
+        @Transactional(TransactionMode.COMMIT)
+        public void testCommitDirtiesFixture() {
+        }
+    }
+
+    public static class InheritedRollbackFixture extends RollbackFixture {
+    }
+
+    @ClassDataSet
+    public static class DefaultFixture {
+
+        public void test() {
+        }
+
+        @Transactional(TransactionMode.ROLLBACK)
+        public void testRollback() {
+        }
+    }
+
+    @Test
+    public void testRollbackIsAccepted() throws Exception {
+        ClassFixture.checkRollback(RollbackFixture.class, RollbackFixture.class.getMethod("test"), new Properties());
+        ClassFixture.checkRollback(RollbackFixture.class, null, new Properties());
+        ClassFixture.checkRollback(InheritedRollbackFixture.class, RollbackFixture.class.getMethod("test"),
+            new Properties());
+        ClassFixture.checkRollback(DefaultFixture.class, DefaultFixture.class.getMethod("testRollback"),
+            new Properties());
+        ClassFixture.checkRollback(DefaultFixture.class, DefaultFixture.class.getMethod("test"), rollbackByDefault());
+    }
+
+    @Test
+    public void testDirtiesFixtureMayCommit() throws Exception {
+        ClassFixture.checkRollback(RollbackFixture.class, RollbackFixture.class.getMethod("testCommitDirtiesFixture"),
+            new Properties());
+    }
+
+    @Test
+    public void testCommittingMethodIsRejected() throws Exception {
+        assertRejected(RollbackFixture.class, RollbackFixture.class.getMethod("testCommit"), new Properties(),
+            "commits");
+        assertRejected(InheritedRollbackFixture.class, RollbackFixture.class.getMethod("testWithoutTransaction"),
+            new Properties(), "runs without transaction");
+    }
+
+    @Test
+    public void testCommittingClassIsRejected() throws Exception {
+        assertRejected(DefaultFixture.class, DefaultFixture.class.getMethod("test"), new Properties(), "commits");
+        assertRejected(DefaultFixture.class, null, new Properties(), "commits");
+    }
+
+    private static void assertRejected(final Class<?> testClass, final Method testMethod,
+        final Properties configuration, final String reason) {
+        try {
+            ClassFixture.checkRollback(testClass, testMethod, configuration);
+            fail("Not rejected: " + testClass.getName());
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+
+    private static Properties rollbackByDefault() {
+        Properties configuration = new Properties();
+        configuration.setProperty("DatabaseModule.Transactional.value.default", "rollback");
+        return configuration;
+    }
+
+}
@@ -7,6 +7,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.commons.io.IOUtils;
@@ -48,13 +54,44 @@ public final class DaoTestMethods {
      */
     public static void createDBTestScript(final InputStream persistenceTestXml,
         final InputStream statementsToInclude, final OutputStream testDbFile) throws IOException {
+        createDBTestScript(persistenceTestXml, statementsToInclude, testDbFile, ScriptCreator.IndexMode.NONE);
+    }
+
+    /**
+     * Creates the db test script.
+     * 
+     * @param persistenceTestXml the persistence test xml
+     * @param statementsToInclude the statements to include
+     * @param testDbFile the test db file
+     * @param indexMode the indexes to create
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void createDBTestScript(final InputStream persistenceTestXml,
+        final InputStream statementsToInclude, final OutputStream testDbFile, final ScriptCreator.IndexMode indexMode)
+        throws IOException {
         ScriptCreator creator = new ScriptCreator();
+        creator.setIndexMode(indexMode);
 
         PersistenceConfigLoader loader = new PersistenceConfigLoader(creator);
         loader.loadFromStream(persistenceTestXml);
         persistenceTestXml.close();
         loader = null;
 
+        writeDBTestScript(creator, statementsToInclude, testDbFile);
+    }
+
+    /**
+     * Writes the db test script of a creator which has its classes loaded.
+     * 
+     * @param creator the creator
+     * @param statementsToInclude the statements to include
+     * @param testDbFile the test db file
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    static void writeDBTestScript(final ScriptCreator creator, final InputStream statementsToInclude,
+        final OutputStream testDbFile) throws IOException {
         ScriptFileCreator fileCreator = new ScriptFileCreator(new OutputStreamWriter(testDbFile));
         try {
             fileCreator.addToScript(creator);
@@ -78,6 +115,115 @@ public final class DaoTestMethods {
         }
     }
 
+    /**
+     * Creates the test database schema by executing the statements over JDBC as a single batch. The objects of
+     * the schema PUBLIC are dropped first, so an in-memory database can be reused by the next test class.
+     * 
+     * @param connection the connection to the database
+     * @param statements the create-statements and manual statements
+     * 
+     * @throws SQLException Signals that an SQL exception has occurred.
+     */
+    public static void createDBTestSchema(final Connection connection, final List<String> statements)
+        throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("DROP SCHEMA PUBLIC CASCADE");
+            for (String sql : statements) {
+                statement.addBatch(sql);
+            }
+            statement.executeBatch();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Checks whether the database of unitils props (property-key: database.url) is an in-memory HSQLDB database,
+     * which has no script file and gets its schema over JDBC.
+     * 
+     * @param unitilsProperties the unitils properties
+     * 
+     * @return true, if the url is a 'mem:' url, false if it is another url or not set
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static boolean isInMemoryDatabaseInUnitilsProps(final InputStream unitilsProperties) throws IOException {
+        Properties props = new Properties();
+        props.load(unitilsProperties);
+        unitilsProperties.close();
+        String url = props.getProperty("database.url");
+        return url != null && url.contains(":mem:");
+    }
+
+    /**
+     * Opens a connection to the database of unitils props (property-keys: database.driverClassName,
+     * database.url, database.userName and database.password).
+     * 
+     * @param unitilsProperties the unitils properties
+     * 
+     * @return the connection
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SQLException Signals that an SQL exception has occurred.
+     */
+    public static Connection openConnectionFromUnitilsProps(final InputStream unitilsProperties)
+        throws IOException, SQLException {
+        Properties props = new Properties();
+        props.load(unitilsProperties);
+        unitilsProperties.close();
+        String driver = props.getProperty("database.driverClassName");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Could not load driver: " + driver);
+            }
+        }
+        String password = props.getProperty("database.password");
+        return DriverManager.getConnection(props.getProperty("database.url"), props.getProperty("database.userName"),
+            password == null ? "" : password);
+    }
+
+    /**
+     * The id of this test JVM, used to give every fork its own database. The id is the system property
+     * database.forkId, else surefire.forkNumber (pass it with &lt;systemPropertyVariables&gt;), else the process id.
+     * 
+     * @return the fork id, containing only letters, digits and '_'
+     */
+    public static String loadForkId() {
+        String id = System.getProperty("database.forkId", System.getProperty("surefire.forkNumber"));
+        if (id == null) {
+            id = ManagementFactory.getRuntimeMXBean().getName();
+            int at = id.indexOf('@');
+            id = at < 0 ? id : id.substring(0, at);
+        }
+        return id.replaceAll("\\W", "_");
+    }
+
+    /**
+     * Resolves the database url of a fork by appending '_' + fork id to the database name of a 'file:' or
+     * 'mem:' url. E.g. jdbc:hsqldb:file:target/testdb;shutdown=true becomes
+     * jdbc:hsqldb:file:target/testdb_3;shutdown=true for fork 3.
+     * 
+     * @param url the database url
+     * @param forkId the fork id
+     * 
+     * @return the url of the fork || the url if it has no 'file:' or 'mem:' part
+     */
+    public static String resolveDatabaseUrl(final String url, final String forkId) {
+        int index = url.indexOf("file:");
+        if (index < 0) {
+            index = url.indexOf("mem:");
+        }
+        if (index < 0) {
+            return url;
+        }
+        int end = url.indexOf(';', index);
+        end = end < 0 ? url.length() : end;
+        return url.substring(0, end) + "_" + forkId + url.substring(end);
+    }
+
     /**
      * Load script file location from unitils props.
      * 
@@ -115,4 +261,43 @@ public final class DaoTestMethods {
         return url == null ? null : new File(url + ".script");
     }
 
+    /**
+     * Load the index mode of the test script from unitils props (property-key: database.indexMode).
+     * 
+     * @param unitilsProperties the unitils properties
+     * 
+     * @return the index mode || {@link ScriptCreator.IndexMode#NONE} if not set
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static ScriptCreator.IndexMode loadIndexModeFromUnitilsProps(final InputStream unitilsProperties)
+        throws IOException {
+        Properties props = new Properties();
+        props.load(unitilsProperties);
+        unitilsProperties.close();
+        String mode = props.getProperty("database.indexMode");
+        return mode == null ? ScriptCreator.IndexMode.NONE : ScriptCreator.IndexMode.valueOf(mode.trim().toUpperCase());
+    }
+
+    /**
+     * Load the directory of the cached test scripts from unitils props (property-key: database.scriptCacheDir).
+     * 
+     * @param unitilsProperties the unitils properties
+     * 
+     * @return the directory || 'target/schema-script-cache' if not set, so 'mvn clean' drops the cache || null if
+     *         set to 'none'
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static File loadScriptCacheDirFromUnitilsProps(final InputStream unitilsProperties) throws IOException {
+        Properties props = new Properties();
+        props.load(unitilsProperties);
+        unitilsProperties.close();
+        String dir = props.getProperty("database.scriptCacheDir");
+        if (dir == null) {
+            return new File("target", "schema-script-cache");
+        }
+        return "none".equalsIgnoreCase(dir.trim()) ? null : new File(dir.trim());
+    }
+
 }
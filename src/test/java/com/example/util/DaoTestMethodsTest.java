@@ -0,0 +1,106 @@
+package com.example.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DaoTestMethodsTest {
+
+    private Properties systemProperties;
+
+    @Before
+    public void init() {
+        systemProperties = (Properties) System.getProperties().clone();
+    }
+
+    @After
+    public void cleanup() {
+        System.setProperties(systemProperties);
+    }
+
+    @Test
+    public void testResolveFileUrl() {
+        assertEquals("jdbc:hsqldb:file:target/testdb_3;shutdown=true",
+            DaoTestMethods.resolveDatabaseUrl("jdbc:hsqldb:file:target/testdb;shutdown=true", "3"));
+        assertEquals("jdbc:hsqldb:file:target/testdb_3", DaoTestMethods.resolveDatabaseUrl(
+            "jdbc:hsqldb:file:target/testdb", "3"));
+    }
+
+    @Test
+    public void testResolveMemUrl() {
+        assertEquals("jdbc:hsqldb:mem:testdb_3", DaoTestMethods.resolveDatabaseUrl("jdbc:hsqldb:mem:testdb", "3"));
+    }
+
+    @Test
+    public void testResolveServerUrlUnchanged() {
+        assertEquals("jdbc:hsqldb:hsql://localhost/testdb",
+            DaoTestMethods.resolveDatabaseUrl("jdbc:hsqldb:hsql://localhost/testdb", "3"));
+    }
+
+    @Test
+    public void testInMemoryDatabaseInUnitilsProps() throws Exception {
+        assertTrue(DaoTestMethods.isInMemoryDatabaseInUnitilsProps(properties("database.url=jdbc:hsqldb:mem:testdb")));
+        assertFalse(DaoTestMethods.isInMemoryDatabaseInUnitilsProps(properties(
+            "database.url=jdbc:hsqldb:file:target/testdb")));
+        assertFalse(DaoTestMethods.isInMemoryDatabaseInUnitilsProps(properties("database.userName=sa")));
+    }
+
+    @Test
+    public void testCreateDBTestSchemaTwice() throws Exception {
+        Class.forName("org.hsqldb.jdbcDriver");
+        Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:createSchemaTwice", "sa", "");
+        try {
+            List<String> statements = Arrays.asList("create table person (id integer, lastName varchar(40))",
+                "create index IDX_person_0 on person (id)", "insert into person values (1, 'doe')");
+            DaoTestMethods.createDBTestSchema(connection, statements);
+            DaoTestMethods.createDBTestSchema(connection, statements);
+            Statement statement = connection.createStatement();
+            try {
+                // the second run dropped the row of the first one
+                ResultSet result = statement.executeQuery("select count(*) from person");
+                assertTrue(result.next());
+                assertEquals(1, result.getInt(1));
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testForkIdOfSystemProperties() {
+        System.setProperty("database.forkId", "fork-2");
+        System.setProperty("surefire.forkNumber", "5");
+        assertEquals("fork_2", DaoTestMethods.loadForkId());
+        System.clearProperty("database.forkId");
+        assertEquals("5", DaoTestMethods.loadForkId());
+    }
+
+    @Test
+    public void testForkIdDefaultsToProcessId() {
+        System.clearProperty("database.forkId");
+        System.clearProperty("surefire.forkNumber");
+        String id = DaoTestMethods.loadForkId();
+        assertTrue(id, ManagementFactory.getRuntimeMXBean().getName().startsWith(id + "@"));
+    }
+
+    private static ByteArrayInputStream properties(final String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.example.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSet;
+
+/**
+ * The Class DataSetCache. Process-wide cache of parsed datasets keyed by location and last-modified time, so test
+ * classes sharing a fixture parse it once and a changed file is parsed again. A flat xml file with an up-to-date
+ * {@link BinaryDataSet} next to it is read from the binary file; the key includes the binary file, so creating,
+ * changing or deleting it also invalidates the entry.
+ */
+public final class DataSetCache {
+
+    private static final Map<String, Object> DATA_SETS = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * Instantiates a new data set cache.
+     */
+    private DataSetCache() {
+        super();
+    }
+
+    /**
+     * Gets the dataset of a flat xml resource.
+     * 
+     * @param resource the resource url
+     * 
+     * @return the dataset
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DatabaseUnitException Signals that the dataset is invalid.
+     */
+    public static IDataSet getDataSet(final URL resource) throws IOException, DatabaseUnitException {
+        File file = FileUtils.toFile(resource);
+        if (file != null) {
+            return getDataSet(file);
+        }
+        URLConnection connection = resource.openConnection();
+        String key = keyOf(resource.toString(), connection.getLastModified());
+        IDataSet dataSet = (IDataSet) DATA_SETS.get(key);
+        if (dataSet == null) {
+            InputStream in = connection.getInputStream();
+            try {
+                dataSet = new FlatXmlDataSet(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            DATA_SETS.put(key, dataSet);
+        }
+        return dataSet;
+    }
+
+    /**
+     * Gets the dataset of a flat xml file, read from its binary file if that is at least as recent.
+     * 
+     * @param file the flat xml file
+     * 
+     * @return the dataset
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws DatabaseUnitException Signals that the dataset is invalid.
+     */
+    public static IDataSet getDataSet(final File file) throws IOException, DatabaseUnitException {
+        File binaryFile = BinaryDataSet.binaryFileOf(file);
+        String key = keyOf(file, binaryFile);
+        IDataSet dataSet = (IDataSet) DATA_SETS.get(key);
+        if (dataSet == null) {
+            boolean binary = binaryFile.isFile() && binaryFile.lastModified() >= file.lastModified();
+            InputStream in = FileUtils.openInputStream(binary ? binaryFile : file);
+            try {
+                dataSet = binary ? BinaryDataSet.read(in) : new FlatXmlDataSet(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            DATA_SETS.put(key, dataSet);
+        }
+        return dataSet;
+    }
+
+    /**
+     * Gets a cached value, e.g. a dataset built by another reader.
+     * 
+     * @param key the key, see {@link #keyOf(File...)}
+     * 
+     * @return the value || null if not cached
+     */
+    public static Object get(final String key) {
+        return DATA_SETS.get(key);
+    }
+
+    /**
+     * Caches a value.
+     * 
+     * @param key the key, see {@link #keyOf(File...)}
+     * @param value the value
+     */
+    public static void put(final String key, final Object value) {
+        DATA_SETS.put(key, value);
+    }
+
+    /**
+     * The key of files: their paths and last-modified times.
+     * 
+     * @param files the files
+     * 
+     * @return the key
+     */
+    public static String keyOf(final File... files) {
+        StringBuilder key = new StringBuilder();
+        for (File file : files) {
+            key.append(key.length() == 0 ? "" : "|").append(keyOf(file.getAbsolutePath(), file.lastModified()));
+        }
+        return key.toString();
+    }
+
+    private static String keyOf(final String location, final long lastModified) {
+        return location + "@" + lastModified;
+    }
+
+}
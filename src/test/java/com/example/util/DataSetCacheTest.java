@@ -0,0 +1,56 @@
+package com.example.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.dbunit.dataset.IDataSet;
+import org.junit.Test;
+
+public class DataSetCacheTest {
+
+    @Test
+    public void testSameFileIsParsedOnce() throws Exception {
+        File file = dataSet("<dataset><user username='jdoe' age='17'/></dataset>");
+        assertSame(DataSetCache.getDataSet(file), DataSetCache.getDataSet(file));
+        assertSame(DataSetCache.getDataSet(file), DataSetCache.getDataSet(file.toURI().toURL()));
+    }
+
+    @Test
+    public void testChangedFileIsParsedAgain() throws Exception {
+        File file = dataSet("<dataset><user username='jdoe' age='17'/></dataset>");
+        IDataSet first = DataSetCache.getDataSet(file);
+        FileUtils.writeStringToFile(file, "<dataset><user username='jdoe' age='17'/><user username='smith' age='20'/>"
+            + "</dataset>", "UTF-8");
+        file.setLastModified(file.lastModified() + 2000);
+        IDataSet second = DataSetCache.getDataSet(file);
+        assertNotSame(first, second);
+        assertEquals(1, first.getTable("user").getRowCount());
+        assertEquals(2, second.getTable("user").getRowCount());
+    }
+
+    @Test
+    public void testBinaryFileIsPartOfTheKey() throws Exception {
+        File file = dataSet("<dataset><user username='jdoe' age='17'/></dataset>");
+        IDataSet xml = DataSetCache.getDataSet(file);
+        File binaryFile = BinaryDataSet.convert(file);
+        binaryFile.deleteOnExit();
+        binaryFile.setLastModified(file.lastModified() + 2000);
+        IDataSet binary = DataSetCache.getDataSet(file);
+        assertNotSame(xml, binary);
+        assertSame(binary, DataSetCache.getDataSet(file));
+        assertEquals("jdoe", binary.getTable("user").getValue(0, "username"));
+    }
+
+    private static File dataSet(final String xml) throws IOException {
+        File file = File.createTempFile("dataset", ".xml");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, xml, "UTF-8");
+        return file;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.example.util;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test of a {@link ClassDataSet} class that commits changes. The database is restored from the snapshot
+ * taken after loading the dataset before the next test runs.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface DirtiesFixture {
+
+}
@@ -1,16 +1,26 @@
 package com.example.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.rules.TestName;
 import org.unitils.UnitilsJUnit4;
+import org.unitils.core.Unitils;
 
 /**
  * The Class GeneralDaoTester.
@@ -22,6 +32,14 @@ public abstract class GeneralDaoTest extends UnitilsJUnit4 {
 
     private static File scriptFile;
 
+    private static byte[] unitilsProperties;
+
+    private static List<String> createdStatements;
+
+    /** The name of the running test. */
+    @Rule
+    public TestName testName = new TestName();
+
     /**
      * Inits the scriptFile. This method is the 'magic' for creating the create-statements before the DAO-tests start.
      * 
@@ -33,31 +51,55 @@ public abstract class GeneralDaoTest extends UnitilsJUnit4 {
      * add some create-statements manually for native queries for example. (Used by the custom lists)
      * 
      * 3) Start the creation of the create-statements based on the classes in 'persistence-test.xml' and add
-     * 'manualTestDbfile.script' to the scriptFile. (This does the actual write)
+     * 'manualTestDbfile.script' to the scriptFile. (This does the actual write) The property database.indexMode
+     * (none, preserve or preserve_and_queries) defines which indexes are created, see
+     * {@link ScriptCreator.IndexMode}.
+     * 
+     * The generated script is cached by a hash of its inputs (see {@link SchemaScriptCache}), in memory and in the
+     * directory of the property database.scriptCacheDir, so an unchanged schema is generated only once.
+     * 
+     * When database.url is an in-memory url (jdbc:hsqldb:mem:...) there is no scriptFile: the statements are
+     * executed over JDBC as a single batch instead, so the test startup does no file I/O.
+     * 
+     * Every test JVM (e.g. every Surefire fork) gets its own database: the database name of database.url gets
+     * the fork id appended (see {@link DaoTestMethods#loadForkId()}) and the resolved url is handed to unitils.
      * 
      * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SQLException Signals that an SQL exception has occurred.
      */
     @BeforeClass
-    public static void initBeforeClass() throws IOException {
-        scriptFile =
-            DaoTestMethods.loadScriptFileLocationFromUnitilsProps(getUnitilsPropertiesStream());
+    public static void initBeforeClass() throws IOException, SQLException {
         File manualFile = DaoTestMethods.loadManualScriptFileLocationFromUnitilsProps(getUnitilsPropertiesStream());
-        FileOutputStream scriptOut = null;
-        InputStream manual = null;
+        ScriptCreator.IndexMode indexMode = DaoTestMethods.loadIndexModeFromUnitilsProps(getUnitilsPropertiesStream());
+        File cacheDir = DaoTestMethods.loadScriptCacheDirFromUnitilsProps(getUnitilsPropertiesStream());
+        InputStream persistenceXml = GeneralDaoTest.class.getResourceAsStream("/META-INF/persistence-test.xml");
+        byte[] persistence;
         try {
-            scriptOut = new FileOutputStream(scriptFile);
-            if (manualFile == null) {
-                DaoTestMethods.createDBTestScript(GeneralDaoTest.class
-                    .getResourceAsStream("/META-INF/persistence-test.xml"), scriptOut);            
-            } else {
-                manual = new FileInputStream(manualFile);
-                DaoTestMethods.createDBTestScript(GeneralDaoTest.class
-                    .getResourceAsStream("/META-INF/persistence-test.xml"), manual, scriptOut);            
-            }
+            persistence = IOUtils.toByteArray(persistenceXml);
         } finally {
-            IOUtils.closeQuietly(scriptOut);
-            IOUtils.closeQuietly(manual);
-        }        
+            IOUtils.closeQuietly(persistenceXml);
+        }
+        byte[] manual = manualFile == null ? null : FileUtils.readFileToByteArray(manualFile);
+        SchemaScriptCache cache = new SchemaScriptCache(cacheDir);
+        if (DaoTestMethods.isInMemoryDatabaseInUnitilsProps(getUnitilsPropertiesStream())) {
+            scriptFile = null;
+            List<String> statements = cache.getStatements(persistence, manual, indexMode);
+            if (statements.equals(createdStatements)) {
+                // the in-memory database of this JVM has the schema already (like an opened file database)
+                return;
+            }
+            Connection connection = DaoTestMethods.openConnectionFromUnitilsProps(getUnitilsPropertiesStream());
+            try {
+                DaoTestMethods.createDBTestSchema(connection, statements);
+            } finally {
+                connection.close();
+            }
+            createdStatements = statements;
+            ClassFixture.reset();
+            return;
+        }
+        scriptFile = DaoTestMethods.loadScriptFileLocationFromUnitilsProps(getUnitilsPropertiesStream());
+        FileUtils.writeByteArrayToFile(scriptFile, cache.getScript(persistence, manual, indexMode));
     }
 
     /**
@@ -65,8 +107,36 @@ public abstract class GeneralDaoTest extends UnitilsJUnit4 {
      * 
      * @return the inputstream to the unitils.properties-file
      */
-    private static InputStream getUnitilsPropertiesStream() {
-        return GeneralDaoTest.class.getResourceAsStream("/unitils.properties");
+    private static InputStream getUnitilsPropertiesStream() throws IOException {
+        return new ByteArrayInputStream(resolveUnitilsProperties());
+    }
+
+    /**
+     * Loads the unitils-properties file once and replaces database.url by the url of this fork, in the loaded
+     * properties and in the configuration of unitils (which creates its datasource on first use).
+     * 
+     * @return the resolved properties
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static synchronized byte[] resolveUnitilsProperties() throws IOException {
+        if (unitilsProperties == null) {
+            Properties props = new Properties();
+            InputStream in = GeneralDaoTest.class.getResourceAsStream("/unitils.properties");
+            try {
+                props.load(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            String url = DaoTestMethods.resolveDatabaseUrl(props.getProperty("database.url"),
+                DaoTestMethods.loadForkId());
+            props.setProperty("database.url", url);
+            Unitils.getInstance().getConfiguration().setProperty("database.url", url);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            props.store(out, null);
+            unitilsProperties = out.toByteArray();
+        }
+        return unitilsProperties;
     }
 
     /**
@@ -76,12 +146,94 @@ public abstract class GeneralDaoTest extends UnitilsJUnit4 {
     public abstract void init();
 
     /**
-     * Cleanup. This method deletes the scriptFile and places a placeholder.
+     * Opens a connection to the test database outside of unitils' transaction, e.g. for a {@link DirtiesFixture}
+     * test that commits.
+     * 
+     * @return the connection
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SQLException Signals that an SQL exception has occurred.
+     */
+    protected static Connection openConnection() throws IOException, SQLException {
+        return DaoTestMethods.openConnectionFromUnitilsProps(getUnitilsPropertiesStream());
+    }
+
+    /**
+     * Loads the {@link ClassDataSet} of the test class, once per class (or not at all when the previous class
+     * loaded the same dataset), and restores its snapshot after a {@link DirtiesFixture} test. Checks that the
+     * test is rolled back (see {@link ClassFixture#checkRollback(Class, Method, Properties)}). Does nothing for
+     * classes using unitils' DataSet.
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SQLException Signals that an SQL exception has occurred.
+     */
+    @Before
+    public void prepareClassDataSet() throws IOException, SQLException {
+        if (getClass().isAnnotationPresent(ClassDataSet.class)) {
+            ClassFixture.checkRollback(getClass(), findTestMethod(testName.getMethodName()),
+                Unitils.getInstance().getConfiguration());
+        }
+        if (!ClassFixture.needsPrepare(getClass())) {
+            return;
+        }
+        Connection connection = openConnection();
+        try {
+            ClassFixture.prepare(getClass(), connection);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Marks the class dataset for restore when the test that ran is annotated with {@link DirtiesFixture}, or when
+     * the test method can't be found (e.g. a name made up by a runner), to be safe. Does nothing for classes without
+     * {@link ClassDataSet}.
+     */
+    @After
+    public void checkClassDataSet() {
+        if (!getClass().isAnnotationPresent(ClassDataSet.class)) {
+            return;
+        }
+        Method method = findTestMethod(testName.getMethodName());
+        if (method == null || method.isAnnotationPresent(DirtiesFixture.class)) {
+            ClassFixture.markDirty();
+        }
+    }
+
+    /**
+     * Finds a test method without parameters in the test class or its superclasses.
+     * 
+     * @param name the name of the test, a parameterized test's '[index]' suffix is ignored
+     * 
+     * @return the method || null if not found
+     */
+    private Method findTestMethod(final String name) {
+        if (name == null) {
+            return null;
+        }
+        int index = name.indexOf('[');
+        String methodName = index < 0 ? name : name.substring(0, index);
+        for (Class<?> cl = getClass(); cl != null; cl = cl.getSuperclass()) {
+            for (Method method : cl.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && method.getParameterTypes().length == 0) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cleanup. This method deletes the scriptFile and places a placeholder. (Nothing to do for an in-memory
+     * database)
      * 
      * @throws IOException Signals that an I/O exception has occurred.
      */
     @AfterClass
     public static void cleanup() throws IOException {
+        if (scriptFile == null) {
+            return;
+        }
         scriptFile.delete();
         // create placeholder as marker
         scriptFile.createNewFile();
@@ -0,0 +1,314 @@
+package com.example.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.Embeddable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.hibernate.Version;
+
+/**
+ * The Class SchemaScriptCache. Caches the generated db-test-script by a hash of everything it depends on:
+ * 'persistence-test.xml', the manual statements, the dialect, the index mode, the Hibernate version and the
+ * bytecode of the script creation classes and of the mapped classes, their superclasses (e.g. @MappedSuperclass)
+ * and the @Embeddable types they use. A script is generated once per JVM and, if a directory is
+ * set, kept there as '&lt;hash&gt;.script' for the following builds.
+ * 
+ * Within a JVM the classes can't change, so a second call with the same arguments is answered from memory
+ * without loading the mapped classes. The first call of a JVM always loads them and reads their bytecode to
+ * compute the hash, a hit in the directory only saves generating the script.
+ */
+public class SchemaScriptCache {
+
+    private static final Logger LOG = Logger.getLogger(SchemaScriptCache.class);
+
+    private static final Map<String, byte[]> SCRIPTS = new ConcurrentHashMap<String, byte[]>();
+
+    private static final Map<String, String> HASHES_BY_ARGUMENTS = new ConcurrentHashMap<String, String>();
+
+    private final File directory;
+
+    /**
+     * Instantiates a new schema script cache.
+     * 
+     * @param directory the directory of the cached scripts || null to cache in memory only
+     */
+    public SchemaScriptCache(final File directory) {
+        super();
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the script, generating it when the hash isn't cached.
+     * 
+     * @param persistenceTestXml the content of the persistence test xml
+     * @param statementsToInclude the content of the manual statements || null if none
+     * @param indexMode the indexes to create
+     * 
+     * @return the content of the script
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public byte[] getScript(final byte[] persistenceTestXml, final byte[] statementsToInclude,
+        final ScriptCreator.IndexMode indexMode) throws IOException {
+        String arguments = hash(persistenceTestXml, statementsToInclude, indexMode);
+        String hash = HASHES_BY_ARGUMENTS.get(arguments);
+        byte[] script = hash == null ? null : SCRIPTS.get(hash);
+        if (script != null) {
+            return script;
+        }
+        ScriptCreator creator = createScriptCreator();
+        creator.setIndexMode(indexMode);
+        new PersistenceConfigLoader(creator).loadFromStream(new ByteArrayInputStream(persistenceTestXml));
+
+        hash = hash(creator, persistenceTestXml, statementsToInclude);
+        HASHES_BY_ARGUMENTS.put(arguments, hash);
+        script = SCRIPTS.get(hash);
+        if (script != null) {
+            return script;
+        }
+        File cached = directory == null ? null : new File(directory, hash + ".script");
+        if (cached != null && cached.isFile()) {
+            LOG.info("Using cached script " + cached);
+            script = FileUtils.readFileToByteArray(cached);
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DaoTestMethods.writeDBTestScript(creator, statementsToInclude == null ? null
+                : new ByteArrayInputStream(statementsToInclude), out);
+            script = out.toByteArray();
+            if (cached != null) {
+                store(cached, script);
+            }
+        }
+        SCRIPTS.put(hash, script);
+        return script;
+    }
+
+    /**
+     * Gets the statements of the script without the schema and user statements of the script file, to be
+     * executed over JDBC into an existing database.
+     * 
+     * @param persistenceTestXml the content of the persistence test xml
+     * @param statementsToInclude the content of the manual statements || null if none
+     * @param indexMode the indexes to create
+     * 
+     * @return the create-statements followed by the manual statements
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public List<String> getStatements(final byte[] persistenceTestXml, final byte[] statementsToInclude,
+        final ScriptCreator.IndexMode indexMode) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(getScript(
+            persistenceTestXml, statementsToInclude, indexMode))));
+        List<String> lines = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        List<String> statements = new ArrayList<String>(lines.size());
+        for (String statement : lines.subList(ScriptFileCreator.HEADING.length,
+            lines.size() - ScriptFileCreator.END.length)) {
+            if (statement.trim().length() > 0) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Creates the creator of a script that isn't cached in memory.
+     * 
+     * @return the script creator
+     */
+    ScriptCreator createScriptCreator() {
+        return new ScriptCreator();
+    }
+
+    /**
+     * Forgets the scripts cached in memory, e.g. to test the directory.
+     */
+    static void clearMemory() {
+        SCRIPTS.clear();
+        HASHES_BY_ARGUMENTS.clear();
+    }
+
+    /**
+     * Writes a script to a temporary file first and renames it, so concurrent builds never read half a file.
+     * 
+     * @param cached the file of the script
+     * @param script the script
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void store(final File cached, final byte[] script) throws IOException {
+        FileUtils.forceMkdir(cached.getParentFile());
+        File tmp = File.createTempFile(cached.getName(), ".tmp", cached.getParentFile());
+        FileUtils.writeByteArrayToFile(tmp, script);
+        if (!tmp.renameTo(cached)) {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Hashes the inputs of the script.
+     * 
+     * @param creator the creator with the mapped classes loaded
+     * @param persistenceTestXml the persistence test xml
+     * @param statementsToInclude the statements to include || null
+     * 
+     * @return the hash as hex string
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static String hash(final ScriptCreator creator, final byte[] persistenceTestXml,
+        final byte[] statementsToInclude) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, persistenceTestXml);
+        update(digest, statementsToInclude == null ? new byte[0] : statementsToInclude);
+        update(digest, creator.getDialect().getBytes("UTF-8"));
+        update(digest, creator.getIndexMode().name().getBytes("UTF-8"));
+        update(digest, Version.getVersionString().getBytes("UTF-8"));
+        update(digest, bytecode(ScriptCreator.class));
+        update(digest, bytecode(DialectForTests.class));
+        update(digest, bytecode(ScriptFileCreator.class));
+        Set<Class<?>> mappedTypes = new LinkedHashSet<Class<?>>();
+        for (Class<?> cl : creator.getAnnotatedClasses()) {
+            addMappedTypes(cl, mappedTypes);
+        }
+        for (Class<?> cl : mappedTypes) {
+            update(digest, cl.getName().getBytes("UTF-8"));
+            update(digest, bytecode(cl));
+        }
+        return hex(digest);
+    }
+
+    /**
+     * Hashes the arguments of {@link #getScript(byte[], byte[], ScriptCreator.IndexMode)}, without the classes
+     * they refer to.
+     * 
+     * @param persistenceTestXml the persistence test xml
+     * @param statementsToInclude the statements to include || null
+     * @param indexMode the index mode
+     * 
+     * @return the hash as hex string
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static String hash(final byte[] persistenceTestXml, final byte[] statementsToInclude,
+        final ScriptCreator.IndexMode indexMode) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, persistenceTestXml);
+        update(digest, statementsToInclude == null ? new byte[0] : statementsToInclude);
+        update(digest, indexMode.name().getBytes("UTF-8"));
+        return hex(digest);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final MessageDigest digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Adds a mapped class, its superclasses and the @Embeddable types of their fields and getters (including
+     * the element types of collections), recursively.
+     * 
+     * @param cl the class
+     * @param mappedTypes the types found so far, in a stable order
+     */
+    private static void addMappedTypes(final Class<?> cl, final Set<Class<?>> mappedTypes) {
+        for (Class<?> type = cl; type != null && type != Object.class; type = type.getSuperclass()) {
+            if (!mappedTypes.add(type)) {
+                return;
+            }
+            for (Field field : type.getDeclaredFields()) {
+                addEmbeddable(field.getType(), mappedTypes);
+                addEmbeddables(field.getGenericType(), mappedTypes);
+            }
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.getParameterTypes().length == 0) {
+                    addEmbeddable(method.getReturnType(), mappedTypes);
+                    addEmbeddables(method.getGenericReturnType(), mappedTypes);
+                }
+            }
+        }
+    }
+
+    private static void addEmbeddables(final Type type, final Set<Class<?>> mappedTypes) {
+        if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (argument instanceof Class<?>) {
+                    addEmbeddable((Class<?>) argument, mappedTypes);
+                }
+            }
+        }
+    }
+
+    private static void addEmbeddable(final Class<?> type, final Set<Class<?>> mappedTypes) {
+        if (type.isAnnotationPresent(Embeddable.class)) {
+            addMappedTypes(type, mappedTypes);
+        }
+    }
+
+    /**
+     * Adds a length-prefixed part to the digest, so the parts can't shift into each other.
+     */
+    private static void update(final MessageDigest digest, final byte[] part) {
+        int length = part.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+            (byte) length});
+        digest.update(part);
+    }
+
+    /**
+     * Reads the bytecode of a class.
+     * 
+     * @param cl the class
+     * 
+     * @return the content of the class file
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static byte[] bytecode(final Class<?> cl) throws IOException {
+        InputStream in = cl.getResourceAsStream("/" + cl.getName().replace('.', '/') + ".class");
+        if (in == null) {
+            throw new IOException("Class file not found: " + cl.getName());
+        }
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.example.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaScriptCacheTest {
+
+    private static final byte[] PERSISTENCE_XML = ("<persistence><persistence-unit name='test'>"
+        + "<class>" + ScriptCreatorTest.Person.class.getName() + "</class></persistence-unit></persistence>")
+        .getBytes();
+
+    private File directory;
+
+    @Before
+    public void init() throws IOException {
+        SchemaScriptCache.clearMemory();
+        directory = File.createTempFile("schema-script-cache", "");
+        FileUtils.forceDelete(directory);
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(directory);
+        SchemaScriptCache.clearMemory();
+    }
+
+    @Test
+    public void testSameArgumentsHitWithoutScriptCreator() throws Exception {
+        CountingCache cache = new CountingCache(null);
+        byte[] script = cache.getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.NONE);
+        assertTrue(new String(script).contains("create table person ("));
+        assertArrayEquals(script, cache.getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.NONE));
+        assertEquals(1, cache.created.get());
+    }
+
+    @Test
+    public void testChangedArgumentsMiss() throws Exception {
+        CountingCache cache = new CountingCache(null);
+        byte[] none = cache.getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.NONE);
+        byte[] preserve = cache.getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.PRESERVE);
+        assertEquals(2, cache.created.get());
+        assertFalse(new String(none).contains("create index"));
+        assertTrue(new String(preserve).contains("create index IDX_person_0 on person (id)"));
+
+        byte[] manual = cache.getScript(PERSISTENCE_XML, "create table extra (id integer)".getBytes(),
+            ScriptCreator.IndexMode.NONE);
+        assertEquals(3, cache.created.get());
+        assertTrue(new String(manual).contains("create table extra (id integer)"));
+    }
+
+    @Test
+    public void testScriptIsReusedFromDirectory() throws Exception {
+        byte[] script = new CountingCache(directory).getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.NONE);
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName().endsWith(".script"));
+        assertArrayEquals(script, FileUtils.readFileToByteArray(files[0]));
+
+        // a following build: nothing in memory, the script is read from the directory
+        SchemaScriptCache.clearMemory();
+        FileUtils.writeStringToFile(files[0], "cached", "UTF-8");
+        CountingCache cache = new CountingCache(directory);
+        assertEquals("cached", new String(cache.getScript(PERSISTENCE_XML, null, ScriptCreator.IndexMode.NONE)));
+        assertEquals(1, cache.created.get());
+    }
+
+    /**
+     * Counts the script creators, i.e. the calls that weren't answered from memory.
+     */
+    private static final class CountingCache extends SchemaScriptCache {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        CountingCache(final File directory) {
+            super(directory);
+        }
+
+        @Override
+        ScriptCreator createScriptCreator() {
+            created.incrementAndGet();
+            return super.createScriptCreator();
+        }
+    }
+
+}
@@ -1,24 +1,67 @@
 package com.example.util;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.hibernate.MappingException;
 import org.hibernate.cfg.AnnotationConfiguration;
 import org.hibernate.cfg.Environment;
 import org.hibernate.cfg.Settings;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.HSQLDialect;
+import org.hibernate.engine.NamedQueryDefinition;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
 
 /**
  * The Class TestScriptCreator. This class is responsible for the creation of the create-statements
  * and will strip all the constraints ({@link DialectForTests} will be used to strip most of
  * the constraints but some can't be removed by manipulation of the dialect and those will
  * be removed here).
+ * Depending on the {@link IndexMode} the stripped primary keys and unique constraints are replaced by
+ * plain (non-unique) indexes and indexes are added for the named queries, so the test database has the
+ * same access paths as the real one without enforcing any constraint.
  */
 public class ScriptCreator {
 
+    /**
+     * The indexes of the test database.
+     */
+    public enum IndexMode {
+
+        /** Only the indexes mapped with @Index. */
+        NONE,
+
+        /** The mapped indexes and a plain index for every stripped primary key and unique constraint. */
+        PRESERVE,
+
+        /** As {@link #PRESERVE}, plus an index on the columns of the where clause of every named query. */
+        PRESERVE_AND_QUERIES
+    }
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("^create table (\\S+) \\(");
+
+    private static final Pattern KEY = Pattern.compile("(?:primary key|unique) \\(([^)]+)\\)");
+
+    private static final Pattern QUERY_ENTITY = Pattern.compile("\\bfrom\\s+(\\w+)\\s+(?:as\\s+)?(\\w+)",
+        Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHERE = Pattern.compile("\\bwhere\\b(.*?)(?:\\border\\s+by\\b|\\bgroup\\s+by\\b|$)",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     private final AnnotationConfiguration cfg;
 
+    private final List<Class<?>> annotatedClasses = new ArrayList<Class<?>>();
+
+    private IndexMode indexMode = IndexMode.NONE;
+
     /**
      * Instantiates a new test script creator.
      */
@@ -37,6 +80,33 @@ public class ScriptCreator {
         cfg.setProperty(Environment.DIALECT, dialect.getName());
     }
 
+    /**
+     * Gets the dialect.
+     * 
+     * @return the class name of the dialect
+     */
+    public String getDialect() {
+        return cfg.getProperty(Environment.DIALECT);
+    }
+
+    /**
+     * Sets the index mode.
+     * 
+     * @param indexMode the new index mode
+     */
+    public void setIndexMode(final IndexMode indexMode) {
+        this.indexMode = indexMode;
+    }
+
+    /**
+     * Gets the index mode.
+     * 
+     * @return the index mode
+     */
+    public IndexMode getIndexMode() {
+        return indexMode;
+    }
+
     /**
      * Adds the class.
      * 
@@ -44,6 +114,16 @@ public class ScriptCreator {
      */
     public void addClass(final Class<?> cl) {
         cfg.addAnnotatedClass(cl);
+        annotatedClasses.add(cl);
+    }
+
+    /**
+     * Gets the added classes.
+     * 
+     * @return the classes in the order they were added
+     */
+    public List<Class<?>> getAnnotatedClasses() {
+        return annotatedClasses;
     }
 
     /**
@@ -58,14 +138,115 @@ public class ScriptCreator {
 
         String[] res = cfg.generateSchemaCreationScript(dialect);
         List<String> result = new ArrayList<String>(res.length);
+        Set<String> indexes = new LinkedHashSet<String>();
 
         for (String str : res) {
+            if (indexMode != IndexMode.NONE) {
+                indexes.addAll(keyIndexes(str));
+            }
             String s = str.replaceAll(" not null", "").replaceAll(", primary key (.+)", ")");
             s = s.replace(" ,", ",");
             result.add(s);
         }
+        if (indexMode == IndexMode.PRESERVE_AND_QUERIES) {
+            indexes.addAll(queryIndexes());
+        }
+
+        int count = 0;
+        for (String index : indexes) {
+            int split = index.indexOf(' ');
+            String table = index.substring(0, split);
+            result.add("create index IDX_" + table.replace("\"", "") + "_" + count++ + " on " + table + " "
+                + index.substring(split + 1));
+        }
+        return result;
+    }
+
+    /**
+     * The index definitions for the primary key and unique constraints of a create table statement.
+     * 
+     * @param statement the statement
+     * 
+     * @return the definitions as 'table (columns)'
+     */
+    private static List<String> keyIndexes(final String statement) {
+        List<String> result = new ArrayList<String>();
+        Matcher table = CREATE_TABLE.matcher(statement);
+        if (table.find()) {
+            Matcher key = KEY.matcher(statement);
+            while (key.find()) {
+                result.add(table.group(1) + " (" + key.group(1) + ")");
+            }
+        }
+        return result;
+    }
 
+    /**
+     * The index definitions for the columns compared in the where clauses of the named queries.
+     * 
+     * @return the definitions as 'table (columns)'
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> queryIndexes() {
+        cfg.buildMappings();
+        List<String> result = new ArrayList<String>();
+        for (NamedQueryDefinition query : ((Map<String, NamedQueryDefinition>) cfg.getNamedQueries()).values()) {
+            String hql = query.getQueryString();
+            Matcher entity = QUERY_ENTITY.matcher(hql);
+            Matcher where = WHERE.matcher(hql);
+            if (!entity.find() || !where.find()) {
+                continue;
+            }
+            PersistentClass mapping = findMapping(entity.group(1));
+            if (mapping == null) {
+                continue;
+            }
+            Set<String> columns = new LinkedHashSet<String>();
+            Matcher path = Pattern.compile("\\b" + entity.group(2) + "\\.(\\w+)").matcher(where.group(1));
+            while (path.find()) {
+                Property property;
+                try {
+                    property = mapping.getRecursiveProperty(path.group(1));
+                } catch (MappingException e) {
+                    continue;
+                }
+                Iterator<?> it = property.getColumnIterator();
+                while (it.hasNext()) {
+                    Object selectable = it.next();
+                    if (selectable instanceof Column) {
+                        columns.add(((Column) selectable).getQuotedName());
+                    }
+                }
+            }
+            if (!columns.isEmpty()) {
+                StringBuilder columnList = new StringBuilder();
+                for (String column : columns) {
+                    columnList.append(columnList.length() == 0 ? "" : ", ").append(column);
+                }
+                result.add(mapping.getTable().getQuotedName() + " (" + columnList + ")");
+            }
+        }
         return result;
     }
 
+    /**
+     * Find the mapping of an entity by the name used in queries.
+     * 
+     * @param entityName the (unqualified) entity name
+     * 
+     * @return the mapping || null if not mapped
+     */
+    private PersistentClass findMapping(final String entityName) {
+        Iterator<?> it = cfg.getClassMappings();
+        while (it.hasNext()) {
+            PersistentClass mapping = (PersistentClass) it.next();
+            String name = mapping.getEntityName();
+            if (name.equals(entityName) || name.endsWith("." + entityName)
+                || entityName.equals(mapping.getJpaEntityName())) {
+                return mapping;
+            }
+        }
+        return null;
+    }
+
 }
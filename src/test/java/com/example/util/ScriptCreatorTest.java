@@ -0,0 +1,85 @@
+package com.example.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.junit.Test;
+
+public class ScriptCreatorTest {
+
+    /**
+     * A primary key, a unique constraint on (lastName, firstName), a named query on the unique columns (its index
+     * is the index of the constraint) and one on age.
+     */
+    @Entity(name = "Person")
+    @Table(name = "person", uniqueConstraints = @UniqueConstraint(columnNames = {"lastName", "firstName"}))
+    @NamedQueries({
+        @NamedQuery(name = "Person.findByName",
+            query = "select p from Person p where p.lastName = :lastName and p.firstName = :firstName"),
+        @NamedQuery(name = "Person.findByMinimalAge",
+            query = "select p from Person p where p.age >= :minAge order by p.lastName")})
+    public static class Person {
+
+        @Id
+        private Long id;
+
+        private String lastName;
+
+        private String firstName;
+
+        private int age;
+    }
+
+    @Test
+    public void testNone() {
+        List<String> script = createScript(ScriptCreator.IndexMode.NONE);
+        assertEquals(1, script.size());
+        assertTable(script.get(0));
+    }
+
+    @Test
+    public void testPreserve() {
+        List<String> script = createScript(ScriptCreator.IndexMode.PRESERVE);
+        assertTable(script.get(0));
+        assertEquals(Arrays.asList("create index IDX_person_0 on person (id)",
+            "create index IDX_person_1 on person (lastName, firstName)"), script.subList(1, script.size()));
+    }
+
+    @Test
+    public void testPreserveAndQueries() {
+        List<String> script = createScript(ScriptCreator.IndexMode.PRESERVE_AND_QUERIES);
+        assertTable(script.get(0));
+        assertEquals(Arrays.asList("create index IDX_person_0 on person (id)",
+            "create index IDX_person_1 on person (lastName, firstName)", "create index IDX_person_2 on person (age)"),
+            script.subList(1, script.size()));
+    }
+
+    private static List<String> createScript(final ScriptCreator.IndexMode indexMode) {
+        ScriptCreator creator = new ScriptCreator();
+        creator.setIndexMode(indexMode);
+        creator.addClass(Person.class);
+        return creator.createScript();
+    }
+
+    /**
+     * The table is created without any constraint, whatever the index mode.
+     */
+    private static void assertTable(final String statement) {
+        assertTrue(statement, statement.startsWith("create table person ("));
+        assertFalse(statement, statement.contains("not null"));
+        assertFalse(statement, statement.contains("primary key"));
+        assertFalse(statement, statement.contains("unique"));
+    }
+
+}
@@ -9,6 +9,12 @@ import java.io.Writer;
  * Writes a script to a writer
  */
 public class ScriptFileCreator {
+
+    /** The statements written before the create-statements. */
+    static final String[] HEADING = {"CREATE SCHEMA PUBLIC AUTHORIZATION DBA"};
+
+    /** The statements written after the create-statements. */
+    static final String[] END = {"CREATE USER SA PASSWORD \"\"", "GRANT DBA TO SA", "SET WRITE_DELAY 10"};
     
     private final PrintWriter out;
     
@@ -47,16 +53,18 @@ public class ScriptFileCreator {
      * Write heading.
      */
     private void writeHeading() {
-        out.println("CREATE SCHEMA PUBLIC AUTHORIZATION DBA");
+        for (String line : HEADING) {
+            out.println(line);
+        }
     }
     
     /**
      * Write end.
      */
     private void writeEnd() {
-        out.println("CREATE USER SA PASSWORD \"\"");
-        out.println("GRANT DBA TO SA");
-        out.println("SET WRITE_DELAY 10");
+        for (String line : END) {
+            out.println(line);
+        }
     }
     
     /**